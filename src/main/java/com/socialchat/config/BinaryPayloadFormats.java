@@ -0,0 +1,138 @@
+package com.socialchat.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary Jackson formats (CBOR and Smile) offered next to JSON, which stays the default.
+ *
+ * REST clients pick a format with Accept or Content-Type. A STOMP client on the plain WebSocket
+ * endpoint announces its format with the content-type header of its CONNECT frame and marks SEND
+ * frames the same way; SockJS only carries text, so SockJS sessions stay on JSON. Broadcasts are
+ * serialized to JSON once by the broker, so frames for a binary session are transcoded from that
+ * JSON just before encoding; a small identity-keyed table holds the transcoded payloads of recent
+ * broadcasts so each one is converted once per format rather than once per subscriber.
+ */
+@Component
+@Slf4j
+public class BinaryPayloadFormats {
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+    public static final MimeType SMILE = new MimeType("application", "x-jackson-smile");
+
+    // Message header naming the format a JSON frame is transcoded to by the STOMP encoder
+    public static final String FORMAT_HEADER = "payloadFormat";
+
+    private static final int SLOTS = 64;
+
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, MimeType> formatBySession = new ConcurrentHashMap<>();
+    private final Transcoded[] recentCbor = new Transcoded[SLOTS];
+    private final Transcoded[] recentSmile = new Transcoded[SLOTS];
+
+    public BinaryPayloadFormats(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        // Same modules and settings as the JSON mapper, so the three formats carry the same fields
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        this.smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+    }
+
+    public ObjectMapper cborMapper() {
+        return cborMapper;
+    }
+
+    public ObjectMapper smileMapper() {
+        return smileMapper;
+    }
+
+    public void openSession(WebSocketSession session) {
+        if (!(session instanceof SockJsSession)) {
+            binarySessions.add(session.getId());
+        }
+    }
+
+    public void closeSession(String sessionId) {
+        binarySessions.remove(sessionId);
+        formatBySession.remove(sessionId);
+    }
+
+    /**
+     * Records the format a STOMP session asked for on CONNECT. Anything else keeps the session on JSON.
+     */
+    public void selectForSession(String sessionId, String contentType) {
+        MimeType format = parse(contentType);
+        if (format != null && binarySessions.contains(sessionId)) {
+            formatBySession.put(sessionId, format);
+        }
+    }
+
+    public MimeType formatOf(String sessionId) {
+        return sessionId != null ? formatBySession.get(sessionId) : null;
+    }
+
+    /**
+     * Re-encodes a JSON payload in the given binary format, or returns it unchanged if it cannot be parsed.
+     */
+    public byte[] transcode(byte[] json, MimeType format) {
+        Transcoded[] recent = CBOR.equals(format) ? recentCbor : recentSmile;
+        int slot = Math.floorMod(System.identityHashCode(json), SLOTS);
+        Transcoded cached = recent[slot];
+        if (cached != null && cached.json == json) {
+            return cached.bytes;
+        }
+
+        ObjectMapper mapper = CBOR.equals(format) ? cborMapper : smileMapper;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException e) {
+            log.warn("Could not transcode payload to {}: {}", format, e.getMessage());
+            return json;
+        }
+
+        byte[] bytes = out.toByteArray();
+        recent[slot] = new Transcoded(json, bytes);
+        return bytes;
+    }
+
+    private static MimeType parse(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            MimeType mimeType = MimeType.valueOf(contentType);
+            if (CBOR.equalsTypeAndSubtype(mimeType)) {
+                return CBOR;
+            }
+            if (SMILE.equalsTypeAndSubtype(mimeType)) {
+                return SMILE;
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring unparseable content-type {}", contentType);
+        }
+        return null;
+    }
+
+    private record Transcoded(byte[] json, byte[] bytes) {
+    }
+}
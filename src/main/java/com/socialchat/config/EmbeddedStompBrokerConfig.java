@@ -0,0 +1,42 @@
+package com.socialchat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process STOMP broker standing in for the external one, so relay mode can be run and tested
+ * locally. Enable with websocket.broker.relay.embedded=true; it listens on the relay host and port.
+ * The Artemis dependencies are optional, so the broker is only available where they are on the classpath.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ")
+@ConditionalOnProperty(name = "websocket.broker.relay.embedded", havingValue = "true")
+@Slf4j
+public class EmbeddedStompBrokerConfig {
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker() throws Exception {
+        // STOMP /topic and /queue map onto multicast and anycast addresses, created on first use
+        String acceptor = "tcp://" + relayHost + ":" + relayPort
+                + "?protocols=STOMP;multicastPrefix=/topic/;anycastPrefix=/queue/";
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", acceptor));
+        log.info("Embedded STOMP broker configured on {}:{}", relayHost, relayPort);
+        return broker;
+    }
+}
@@ -0,0 +1,344 @@
+package com.socialchat.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for clientOutboundChannel with one ordered, prioritized lane per WebSocket session.
+ *
+ * A session's frames are written by at most one pool thread at a time, so a slow client holds one
+ * thread rather than many. Chat messages, notifications and acks go ahead of typing and presence
+ * frames. Once a session has websocket.outbound.low-priority-threshold frames pending, new typing
+ * frames are dropped and new presence deltas are merged into the pending presence frame. Only when
+ * websocket.outbound.max-pending is reached is the session closed.
+ *
+ * Because a lane never has a second sender, the send-time limit of Spring's session decorator never
+ * fires; the lane enforces it instead. A watchdog closes any session whose current frame has been
+ * sending for longer than websocket.transport.send-time-limit and interrupts the blocked pool thread,
+ * so a stalled client cannot keep an outbound thread for the container's own write timeout.
+ */
+@Component
+@Slf4j
+public class PrioritizedOutboundExecutor implements TaskExecutor {
+    private static final int DRAIN_BATCH = 64;
+    private static final String PRESENCE_DESTINATION = "/user/queue/presence";
+    private static final CloseStatus OVERFLOW = CloseStatus.SESSION_NOT_RELIABLE.withReason("Outbound queue overflow");
+    private static final CloseStatus SEND_TIMEOUT = CloseStatus.SESSION_NOT_RELIABLE.withReason("Send time limit exceeded");
+
+    private final int lowPriorityThreshold;
+    private final int maxPending;
+    private final long sendTimeLimitNanos;
+    private final ExecutorService pool;
+    private final ScheduledExecutorService watchdog;
+    // Closing a stalled session may itself block on the socket, so it never runs on the watchdog thread
+    private final ExecutorService closer;
+
+    private final Counter droppedFrames;
+    private final Counter coalescedFrames;
+    private final Counter overflowDisconnects;
+    private final Counter transportLimitDisconnects;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    public PrioritizedOutboundExecutor(@Value("${websocket.outbound.pool-size:16}") int poolSize,
+                                       @Value("${websocket.outbound.low-priority-threshold:50}") int lowPriorityThreshold,
+                                       @Value("${websocket.outbound.max-pending:1000}") int maxPending,
+                                       @Value("${websocket.transport.send-time-limit:15000}") long sendTimeLimitMs,
+                                       MeterRegistry meterRegistry) {
+        this.lowPriorityThreshold = lowPriorityThreshold;
+        this.maxPending = maxPending;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.pool = Executors.newFixedThreadPool(poolSize, daemonThreads("ws-outbound-"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("ws-outbound-watchdog-"));
+        this.closer = Executors.newCachedThreadPool(daemonThreads("ws-outbound-close-"));
+        long checkIntervalMs = Math.max(100, sendTimeLimitMs / 4);
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        this.droppedFrames = meterRegistry.counter("websocket.outbound.frames", "outcome", "dropped");
+        this.coalescedFrames = meterRegistry.counter("websocket.outbound.frames", "outcome", "coalesced");
+        this.overflowDisconnects = meterRegistry.counter("websocket.outbound.disconnected", "reason", "overflow");
+        this.transportLimitDisconnects = meterRegistry.counter("websocket.outbound.disconnected", "reason", "transport-limit");
+    }
+
+    public void registerSession(WebSocketSession session) {
+        lanes.put(session.getId(), new Lane(session));
+    }
+
+    public void unregisterSession(WebSocketSession session, CloseStatus status) {
+        Lane lane = lanes.remove(session.getId());
+        // Frames sent outside a lane are still bounded by the transport's own limits
+        if (lane != null && !lane.closing && status.getCode() == CloseStatus.SESSION_NOT_RELIABLE.getCode()) {
+            transportLimitDisconnects.increment();
+        }
+    }
+
+    /**
+     * Closes a session on behalf of another component, e.g. presence expiring a silent client. Frames
+     * still queued for it are dropped.
+     */
+    public void closeSession(String sessionId, CloseStatus status) {
+        Lane lane = lanes.get(sessionId);
+        if (lane == null) {
+            return;
+        }
+        synchronized (lane) {
+            if (lane.closing) {
+                return;
+            }
+            lane.closing = true;
+        }
+        closer.execute(() -> close(lane, status));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handlingRunnable)) {
+            pool.execute(task);
+            return;
+        }
+
+        Message<?> message = handlingRunnable.getMessage();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Lane lane = sessionId != null ? lanes.get(sessionId) : null;
+        if (lane == null) {
+            pool.execute(task);
+            return;
+        }
+
+        Priority priority = classify(message.getHeaders());
+        boolean schedule = false;
+        boolean overflow = false;
+        synchronized (lane) {
+            if (lane.closing) {
+                return;
+            }
+            int pending = lane.high.size() + lane.low.size();
+            if (pending >= maxPending) {
+                overflow = true;
+                lane.closing = true;
+            } else if (priority != Priority.HIGH && pending >= lowPriorityThreshold) {
+                if (priority == Priority.PRESENCE && coalesce(lane, handlingRunnable)) {
+                    coalescedFrames.increment();
+                } else {
+                    droppedFrames.increment();
+                }
+                return;
+            } else {
+                (priority == Priority.HIGH ? lane.high : lane.low).add(handlingRunnable);
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+                    schedule = true;
+                }
+            }
+        }
+
+        if (overflow) {
+            overflowDisconnects.increment();
+            close(lane);
+        } else if (schedule) {
+            pool.execute(() -> drain(lane));
+        }
+    }
+
+    private void drain(Lane lane) {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            MessageHandlingRunnable next;
+            synchronized (lane) {
+                next = lane.closing ? null : lane.high.poll();
+                if (next == null && !lane.closing) {
+                    next = lane.low.poll();
+                }
+                if (next == null) {
+                    if (lane.closing) {
+                        lane.high.clear();
+                        lane.low.clear();
+                    }
+                    lane.scheduled = false;
+                    return;
+                }
+                lane.sender = Thread.currentThread();
+                lane.sendStartedNanos = System.nanoTime();
+            }
+            try {
+                next.run();
+            } catch (Throwable t) {
+                log.error("Error sending outbound frame to session {}", lane.session.getId(), t);
+            } finally {
+                synchronized (lane) {
+                    lane.sender = null;
+                }
+                // An interrupt from the watchdog is meant for this send only, not for the pool thread
+                Thread.interrupted();
+            }
+        }
+        // Yield the thread so one busy session cannot starve the others
+        pool.execute(() -> drain(lane));
+    }
+
+    /**
+     * Merges the new presence frame (a JSON array of deltas) into the newest pending one. Deltas are
+     * applied in order by the client, so appending keeps the result equivalent.
+     */
+    private boolean coalesce(Lane lane, MessageHandlingRunnable incoming) {
+        Iterator<MessageHandlingRunnable> it = lane.low.descendingIterator();
+        while (it.hasNext()) {
+            MessageHandlingRunnable pending = it.next();
+            if (classify(pending.getMessage().getHeaders()) != Priority.PRESENCE) {
+                continue;
+            }
+            if (!(pending.getMessage().getPayload() instanceof byte[] existing)
+                    || !(incoming.getMessage().getPayload() instanceof byte[] added)
+                    || !isJsonArray(existing) || !isJsonArray(added)) {
+                return false;
+            }
+
+            byte[] merged = new byte[existing.length + added.length - 1];
+            System.arraycopy(existing, 0, merged, 0, existing.length - 1);
+            merged[existing.length - 1] = ',';
+            System.arraycopy(added, 1, merged, existing.length, added.length - 1);
+
+            Message<byte[]> replacement = MessageBuilder.createMessage(merged, pending.getMessage().getHeaders());
+            lane.low.replace(pending, new OutboundTask(pending.getMessageHandler(), replacement));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isJsonArray(byte[] payload) {
+        // Non-empty array: at least "[x]"
+        return payload.length > 2 && payload[0] == '[' && payload[payload.length - 1] == ']';
+    }
+
+    private static Priority classify(MessageHeaders headers) {
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return Priority.HIGH;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        Object original = headers.get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if (PRESENCE_DESTINATION.equals(original) || (destination != null && destination.startsWith("/queue/presence-user"))) {
+            return Priority.PRESENCE;
+        }
+        if (destination != null && destination.endsWith("/typing")) {
+            return Priority.TYPING;
+        }
+        return Priority.HIGH;
+    }
+
+    private void close(Lane lane) {
+        log.warn("Closing session {}: outbound queue exceeded {} frames", lane.session.getId(), maxPending);
+        close(lane, OVERFLOW);
+    }
+
+    private void close(Lane lane, CloseStatus status) {
+        try {
+            lane.session.close(status);
+        } catch (IOException e) {
+            log.error("Error closing slow session {}", lane.session.getId(), e);
+        }
+    }
+
+    void closeStalledSessions() {
+        long now = System.nanoTime();
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                if (lane.sender == null || lane.closing || now - lane.sendStartedNanos < sendTimeLimitNanos) {
+                    continue;
+                }
+                lane.closing = true;
+                // Under the lane lock, so the interrupt cannot reach the thread after it moved on
+                lane.sender.interrupt();
+            }
+            transportLimitDisconnects.increment();
+            log.warn("Closing session {}: frame not sent within {} ms", lane.session.getId(),
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos));
+            closer.execute(() -> close(lane, SEND_TIMEOUT));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(namePrefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdown();
+        pool.shutdown();
+        closer.shutdown();
+    }
+
+    private enum Priority {
+        HIGH, PRESENCE, TYPING
+    }
+
+    private static final class Lane {
+        private final WebSocketSession session;
+        private final ArrayDeque<MessageHandlingRunnable> high = new ArrayDeque<>();
+        private final LaneDeque low = new LaneDeque();
+        private boolean scheduled;
+        private volatile boolean closing;
+        // Pool thread currently sending a frame of this lane, and when that send started; guarded by the lane
+        private Thread sender;
+        private long sendStartedNanos;
+
+        private Lane(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private static final class LaneDeque extends ArrayDeque<MessageHandlingRunnable> {
+        void replace(MessageHandlingRunnable existing, MessageHandlingRunnable replacement) {
+            Deque<MessageHandlingRunnable> tail = new ArrayDeque<>();
+            MessageHandlingRunnable last;
+            while ((last = pollLast()) != existing) {
+                tail.addFirst(last);
+            }
+            addLast(replacement);
+            addAll(tail);
+        }
+    }
+
+    private record OutboundTask(MessageHandler handler, Message<?> message) implements MessageHandlingRunnable {
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return handler;
+        }
+
+        @Override
+        public void run() {
+            handler.handleMessage(message);
+        }
+    }
+}
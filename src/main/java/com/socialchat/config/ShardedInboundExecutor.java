@@ -0,0 +1,198 @@
+package com.socialchat.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for clientInboundChannel that keeps frames of one conversation in order.
+ *
+ * Frames are routed to one of websocket.inbound.shards single-worker shards: chat frames
+ * (/app/chat/{conversationId}/...) by conversation id, all other frames by STOMP session id. A
+ * shard runs its frames one at a time in arrival order, while different shards run in parallel.
+ *
+ * A session's frames are always handled in the order they arrived: while a session still has a frame
+ * queued or running on one shard, its next frame joins that shard instead of its own key's, so a
+ * SEND cannot overtake the SUBSCRIBE before it, nor a DISCONNECT the SEND. Frames of one conversation
+ * from different sessions are therefore ordered only among frames routed by the conversation id; a
+ * frame that follows its session's earlier frame to another shard is ordered after that frame instead.
+ *
+ * Each shard queue holds at most websocket.inbound.queue-capacity frames; when it is full the
+ * transport thread waits up to websocket.inbound.offer-timeout, then the frame is rejected.
+ * Shard workers can be virtual threads, which makes large shard counts cheap.
+ */
+@Component
+@Slf4j
+public class ShardedInboundExecutor implements TaskExecutor {
+    private static final String CHAT_PREFIX = "/app/chat/";
+
+    private final Shard[] shards;
+    private final long offerTimeoutMs;
+    private final Counter rejectedFrames;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    // Sessions with frames queued or running, and the shard those frames are on
+    private final Map<String, SessionRoute> pendingSessions = new ConcurrentHashMap<>();
+
+    public ShardedInboundExecutor(@Value("${websocket.inbound.shards:16}") int shardCount,
+                                  @Value("${websocket.inbound.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${websocket.inbound.offer-timeout:100}") long offerTimeoutMs,
+                                  @Value("${websocket.inbound.virtual-threads:false}") boolean virtualThreads,
+                                  MeterRegistry meterRegistry) {
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.rejectedFrames = meterRegistry.counter("websocket.inbound.rejected");
+        this.shards = new Shard[shardCount];
+
+        ThreadFactory threads = virtualThreads
+                ? new VirtualThreadTaskExecutor("ws-inbound-").getVirtualThreadFactory()
+                : daemonThreads("ws-inbound-");
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(new LinkedBlockingQueue<>(queueCapacity));
+            shards[i] = shard;
+            Gauge.builder("websocket.inbound.queue.depth", shard.queue, BlockingQueue::size)
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            shard.worker = threads.newThread(shard::run);
+            shard.worker.start();
+        }
+        log.info("Inbound STOMP executor started with {} shards ({} threads)", shardCount,
+                virtualThreads ? "virtual" : "platform");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = sessionId(task);
+        int shardIndex = Math.floorMod(shardKey(task), shards.length);
+        Runnable queued = task;
+        if (sessionId != null) {
+            shardIndex = follow(sessionId, shardIndex);
+            queued = () -> {
+                try {
+                    task.run();
+                } finally {
+                    release(sessionId);
+                }
+            };
+        }
+
+        Shard shard = shards[shardIndex];
+        try {
+            if (!shard.queue.offer(queued, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedFrames.increment();
+                if (sessionId != null) {
+                    release(sessionId);
+                }
+                throw new RejectedExecutionException("Inbound shard queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (sessionId != null) {
+                release(sessionId);
+            }
+            throw new RejectedExecutionException("Interrupted while queueing inbound frame", e);
+        }
+    }
+
+    // Returns the shard the session's pending frames are on, or the given one if it has none
+    private int follow(String sessionId, int shardIndex) {
+        return pendingSessions.compute(sessionId, (id, route) -> route == null
+                ? new SessionRoute(shardIndex, 1)
+                : new SessionRoute(route.shard(), route.pending() + 1)).shard();
+    }
+
+    private void release(String sessionId) {
+        pendingSessions.computeIfPresent(sessionId, (id, route) -> route.pending() > 1
+                ? new SessionRoute(route.shard(), route.pending() - 1)
+                : null);
+    }
+
+    private static String sessionId(Runnable task) {
+        if (task instanceof MessageHandlingRunnable handlingRunnable) {
+            return SimpMessageHeaderAccessor.getSessionId(handlingRunnable.getMessage().getHeaders());
+        }
+        return null;
+    }
+
+    private int shardKey(Runnable task) {
+        if (task instanceof MessageHandlingRunnable handlingRunnable) {
+            Message<?> message = handlingRunnable.getMessage();
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.startsWith(CHAT_PREFIX)) {
+                int end = destination.indexOf('/', CHAT_PREFIX.length());
+                String conversationId = end > 0
+                        ? destination.substring(CHAT_PREFIX.length(), end)
+                        : destination.substring(CHAT_PREFIX.length());
+                return spread(conversationId.hashCode());
+            }
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if (sessionId != null) {
+                return spread(sessionId.hashCode());
+            }
+        }
+        return roundRobin.getAndIncrement();
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(namePrefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Shard shard : shards) {
+            shard.worker.interrupt();
+        }
+    }
+
+    private record SessionRoute(int shard, int pending) {
+    }
+
+    private static final class Shard {
+        private final BlockingQueue<Runnable> queue;
+        private Thread worker;
+
+        private Shard(BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+
+        private void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    log.error("Error handling inbound STOMP frame", t);
+                }
+            }
+        }
+    }
+}
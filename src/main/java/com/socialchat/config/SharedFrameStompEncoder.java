@@ -0,0 +1,200 @@
+package com.socialchat.config;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Encodes a broadcast's shared frame section once and reuses it for every subscriber.
+ *
+ * The broker hands every subscriber of a destination the same payload instance, and their MESSAGE
+ * frames differ only in the subscription, message-id and ack headers. Those are written per
+ * subscriber; the remaining headers, content-length and body are encoded once into an immutable
+ * tail that later frames for the same payload copy. A small identity-keyed table holds the tails
+ * of the most recent broadcasts. Other commands go through the standard encoder.
+ *
+ * JSON bodies of frames marked with BinaryPayloadFormats.FORMAT_HEADER are transcoded here, after
+ * the outbound lanes have merged presence frames, and the content-type header is rewritten to match.
+ */
+public class SharedFrameStompEncoder extends StompEncoder {
+    private static final Set<String> PER_SUBSCRIBER_HEADERS = Set.of("subscription", "message-id", "ack", "content-length");
+    private static final int SLOTS = 64;
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.UTF_8);
+
+    private final SharedTail[] recentTails = new SharedTail[SLOTS];
+    private final BinaryPayloadFormats payloadFormats;
+
+    public SharedFrameStompEncoder(BinaryPayloadFormats payloadFormats) {
+        this.payloadFormats = payloadFormats;
+    }
+
+    @Override
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        if (StompHeaderAccessor.getCommand(headers) != StompCommand.MESSAGE) {
+            return super.encode(headers, payload);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> nativeHeaders =
+                (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (nativeHeaders == null) {
+            nativeHeaders = Map.of();
+        }
+        MimeType format = (MimeType) headers.get(BinaryPayloadFormats.FORMAT_HEADER);
+        if (format != null) {
+            payload = payloadFormats.transcode(payload, format);
+        }
+
+        FrameBuffer head = new FrameBuffer(96);
+        head.write(MESSAGE_COMMAND);
+        for (Map.Entry<String, List<String>> header : nativeHeaders.entrySet()) {
+            if (PER_SUBSCRIBER_HEADERS.contains(header.getKey()) && !"content-length".equals(header.getKey())) {
+                writeHeader(head, header.getKey(), header.getValue());
+            }
+        }
+
+        byte[] tail = sharedTail(nativeHeaders, format, payload);
+        byte[] frame = new byte[head.size + tail.length];
+        System.arraycopy(head.bytes, 0, frame, 0, head.size);
+        System.arraycopy(tail, 0, frame, head.size, tail.length);
+        return frame;
+    }
+
+    private byte[] sharedTail(Map<String, List<String>> nativeHeaders, MimeType format, byte[] payload) {
+        int slot = Math.floorMod(System.identityHashCode(payload), SLOTS);
+        SharedTail cached = recentTails[slot];
+        if (cached != null && cached.payload == payload && Objects.equals(cached.format, format)
+                && sameSharedHeaders(cached.headers, nativeHeaders)) {
+            return cached.bytes;
+        }
+
+        Map<String, List<String>> shared = new LinkedHashMap<>();
+        nativeHeaders.forEach((name, values) -> {
+            if (!PER_SUBSCRIBER_HEADERS.contains(name)) {
+                shared.put(name, values);
+            }
+        });
+
+        FrameBuffer out = new FrameBuffer(payload.length + 128);
+        shared.forEach((name, values) -> {
+            if (format == null || !"content-type".equals(name)) {
+                writeHeader(out, name, values);
+            }
+        });
+        if (format != null) {
+            writeHeader(out, "content-type", List.of(format.toString()));
+        }
+        out.writeText("content-length:" + payload.length + "\n\n");
+        out.write(payload);
+        out.write(0);
+
+        byte[] bytes = Arrays.copyOf(out.bytes, out.size);
+        recentTails[slot] = new SharedTail(payload, format, shared, bytes);
+        return bytes;
+    }
+
+    // Compares without building the subscriber's shared header map, which is the common case's only use for it
+    private static boolean sameSharedHeaders(Map<String, List<String>> shared, Map<String, List<String>> nativeHeaders) {
+        int count = 0;
+        for (Map.Entry<String, List<String>> header : nativeHeaders.entrySet()) {
+            if (PER_SUBSCRIBER_HEADERS.contains(header.getKey())) {
+                continue;
+            }
+            if (!header.getValue().equals(shared.get(header.getKey()))) {
+                return false;
+            }
+            count++;
+        }
+        return count == shared.size();
+    }
+
+    private static void writeHeader(FrameBuffer out, String name, List<String> values) {
+        for (String value : values) {
+            out.writeText(escape(name));
+            out.write(':');
+            out.writeText(escape(value));
+            out.write('\n');
+        }
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ':' -> "\\c";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(text.length() + 8).append(text, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+
+    // Unsynchronized growable buffer; each frame is written by a single thread
+    private static final class FrameBuffer {
+        private byte[] bytes;
+        private int size;
+
+        FrameBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] data) {
+            ensureCapacity(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        // Header names and ids are ASCII in practice; only fall back to UTF-8 encoding from the first other character
+        void writeText(String text) {
+            ensureCapacity(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    write(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                bytes[size++] = (byte) c;
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private record SharedTail(byte[] payload, MimeType format, Map<String, List<String>> headers, byte[] bytes) {
+    }
+}
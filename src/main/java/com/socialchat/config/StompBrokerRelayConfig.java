@@ -0,0 +1,107 @@
+package com.socialchat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.util.StringUtils;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
+
+/**
+ * Relays /topic and /queue to an external STOMP broker so every node sees every message.
+ *
+ * The relay opens one TCP connection per client session plus one shared "system" connection, so
+ * the connection cap bounds the sessions a node can relay; the event loop is sized separately.
+ * User destinations work across nodes through the broadcast destinations below: each node
+ * publishes its local users, and messages for users it does not know are rebroadcast for the
+ * node that holds the session.
+ *
+ * With more than one node, set presence.directory=db-polling so a user stays online while any node
+ * holds one of their sessions; the in-process directory only knows this node's sessions.
+ */
+@Configuration
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "relay")
+public class StompBrokerRelayConfig {
+    private static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+    private static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String virtualHost;
+
+    @Value("${websocket.broker.relay.client-login:guest}")
+    private String clientLogin;
+
+    @Value("${websocket.broker.relay.client-passcode:guest}")
+    private String clientPasscode;
+
+    @Value("${websocket.broker.relay.system-login:guest}")
+    private String systemLogin;
+
+    @Value("${websocket.broker.relay.system-passcode:guest}")
+    private String systemPasscode;
+
+    @Value("${websocket.broker.relay.system-heartbeat-send-interval:10000}")
+    private long systemHeartbeatSendInterval;
+
+    @Value("${websocket.broker.relay.system-heartbeat-receive-interval:10000}")
+    private long systemHeartbeatReceiveInterval;
+
+    @Value("${websocket.broker.relay.tcp.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${websocket.broker.relay.tcp.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${websocket.broker.relay.tcp.pending-acquire-timeout:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources stompRelayLoopResources() {
+        return LoopResources.create("stomp-relay", workerThreads, true);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider stompRelayConnectionProvider() {
+        return ConnectionProvider.builder("stomp-relay")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .build();
+    }
+
+    public void configure(MessageBrokerRegistry config) {
+        TcpClient tcpClient = TcpClient.create(stompRelayConnectionProvider())
+                .host(relayHost)
+                .port(relayPort)
+                .runOn(stompRelayLoopResources());
+
+        StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(clientLogin)
+                .setClientPasscode(clientPasscode)
+                .setSystemLogin(systemLogin)
+                .setSystemPasscode(systemPasscode)
+                .setSystemHeartbeatSendInterval(systemHeartbeatSendInterval)
+                .setSystemHeartbeatReceiveInterval(systemHeartbeatReceiveInterval)
+                .setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+                .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST)
+                .setTcpClient(new ReactorNettyTcpClient<>(tcpClient, new StompReactorNettyCodec()));
+        if (StringUtils.hasText(virtualHost)) {
+            relay.setVirtualHost(virtualHost);
+        }
+    }
+}
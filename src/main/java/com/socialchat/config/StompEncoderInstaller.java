@@ -0,0 +1,47 @@
+package com.socialchat.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Installs SharedFrameStompEncoder on the STOMP protocol handler shared by the WebSocket endpoints.
+ *
+ * The protocol handler is only added to SubProtocolWebSocketHandler when the endpoint registry is
+ * built, which happens after the handler bean itself is initialized, so the encoder is installed once
+ * all singletons are ready rather than from a bean post-processor.
+ */
+@Component
+public class StompEncoderInstaller implements SmartInitializingSingleton {
+    private final WebSocketHandler webSocketHandler;
+    private final BinaryPayloadFormats payloadFormats;
+
+    public StompEncoderInstaller(@Qualifier("subProtocolWebSocketHandler") WebSocketHandler webSocketHandler,
+                                 BinaryPayloadFormats payloadFormats) {
+        this.webSocketHandler = webSocketHandler;
+        this.payloadFormats = payloadFormats;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!(webSocketHandler instanceof SubProtocolWebSocketHandler handler)) {
+            throw new IllegalStateException("Unexpected WebSocket handler: " + webSocketHandler.getClass().getName());
+        }
+
+        SharedFrameStompEncoder encoder = new SharedFrameStompEncoder(payloadFormats);
+        int installed = 0;
+        for (SubProtocolHandler protocolHandler : handler.getProtocolHandlers()) {
+            if (protocolHandler instanceof StompSubProtocolHandler stompHandler) {
+                stompHandler.setEncoder(encoder);
+                installed++;
+            }
+        }
+        if (installed == 0) {
+            throw new IllegalStateException("No STOMP protocol handler registered on the WebSocket endpoints");
+        }
+    }
+}
@@ -1,23 +1,48 @@
 package com.socialchat.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialchat.security.JwtPrincipal;
 import com.socialchat.security.JwtTokenProvider;
+import com.socialchat.service.ConversationMembershipCache;
+import com.socialchat.service.PresenceSessionRegistry;
+import com.socialchat.service.UserProfileCache;
+import com.socialchat.service.UserSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -25,27 +50,150 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private final JwtTokenProvider jwtTokenProvider;
+    private final PresenceSessionRegistry presenceSessionRegistry;
+    private final UserProfileCache userProfileCache;
+    private final ObjectProvider<StompBrokerRelayConfig> brokerRelayConfig;
+    private final ShardedInboundExecutor shardedInboundExecutor;
+    private final PrioritizedOutboundExecutor prioritizedOutboundExecutor;
+    private final BinaryPayloadFormats binaryPayloadFormats;
+    private final ConversationMembershipCache conversationMembershipCache;
+
+    private static final String CONVERSATION_TOPIC_PREFIX = "/topic/conversation/";
+
+    @Value("${websocket.heartbeat-interval:10000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${websocket.transport.send-time-limit:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        StompBrokerRelayConfig relay = brokerRelayConfig.getIfAvailable();
+        if (relay != null) {
+            // websocket.broker.mode=relay: heartbeats are negotiated with the external broker
+            relay.configure(config);
+        } else {
+            // Clients are asked to heartbeat so silent sessions can be told apart from idle ones
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{heartbeatIntervalMs, heartbeatIntervalMs})
+                    .setTaskScheduler(heartbeatScheduler());
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Bean
+    public ThreadPoolTaskScheduler heartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        return scheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws/chat")
                 .setAllowedOrigins("*")
                 .withSockJS()
                 .setInterceptors(new WebSocketHandshakeInterceptor(jwtTokenProvider));
+
+        // Plain WebSocket for clients that negotiate CBOR or Smile; SockJS frames are text only
+        registry.addEndpoint("/ws/chat-native")
+                .setAllowedOrigins("*")
+                .addInterceptors(new WebSocketHandshakeInterceptor(jwtTokenProvider));
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Only used for frames that declare the binary content type; JSON stays the default
+        messageConverters.add(binaryConverter(BinaryPayloadFormats.CBOR, binaryPayloadFormats.cborMapper()));
+        messageConverters.add(binaryConverter(BinaryPayloadFormats.SMILE, binaryPayloadFormats.smileMapper()));
+        return true;
+    }
+
+    private static MessageConverter binaryConverter(MimeType mimeType, ObjectMapper objectMapper) {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(mimeType);
+        converter.setObjectMapper(objectMapper);
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Bounds frames sent outside the outbound lanes; the lanes enforce the send time limit themselves,
+        // since Spring only checks it when a second sender finds the session busy
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+                    @Override
+                    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                        prioritizedOutboundExecutor.registerSession(session);
+                        binaryPayloadFormats.openSession(session);
+                        super.afterConnectionEstablished(session);
+                    }
+
+                    @Override
+                    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                        prioritizedOutboundExecutor.unregisterSession(session, closeStatus);
+                        binaryPayloadFormats.closeSession(session.getId());
+                        super.afterConnectionClosed(session, closeStatus);
+                    }
+                });
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Per-session lanes: chat and notifications ahead of typing and presence
+        registration.executor(prioritizedOutboundExecutor);
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                MimeType format = binaryPayloadFormats.formatOf(SimpMessageHeaderAccessor.getSessionId(headers));
+                MimeType contentType = headers.get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+                if (format == null || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                        || contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                    return message;
+                }
+                // The body stays JSON until encoding so queued presence frames can still be merged;
+                // octet-stream makes the protocol handler send a binary WebSocket message
+                return MessageBuilder.fromMessage(message)
+                        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM)
+                        .setHeader(BinaryPayloadFormats.FORMAT_HEADER, format)
+                        .build();
+            }
+        });
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Frames of one conversation are handled in order; other conversations run in parallel
+        registration.executor(shardedInboundExecutor);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                // The mutable accessor lets CONNECT set the session user for /user destinations
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null) {
+                    accessor = StompHeaderAccessor.wrap(message);
+                }
+
+                // Any inbound frame, heartbeats included, keeps the session alive for presence
+                if (accessor.getSessionId() != null) {
+                    presenceSessionRegistry.touch(accessor.getSessionId());
+                }
+
+                // Conversation topics reach members only, so a group message is published once and never filtered per member
+                if (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && !canSubscribe(accessor)) {
+                    log.warn("Rejected subscription to {} for session {}", accessor.getDestination(), accessor.getSessionId());
+                    return null;
+                }
 
                 if (StompCommand.CONNECT.equals(accessor.getCommand())) {
                     try {
@@ -54,7 +202,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
                             String token = authHeader.substring(7);
 
-                            if (!jwtTokenProvider.validateToken(token)) {
+                            JwtPrincipal principal = jwtTokenProvider.verifyOnce(token);
+                            if (principal == null) {
                                 log.warn("Invalid JWT token in WebSocket connection");
                                 throw new AuthenticationException("Invalid token") {};
                             }
@@ -64,12 +213,22 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                                 throw new AuthenticationException("Token revoked") {};
                             }
 
-                            Long userId = jwtTokenProvider.getUserIdFromToken(token);
-                            String username = jwtTokenProvider.getUsernameFromToken(token);
+                            Long userId = principal.userId();
+                            String username = principal.username();
+
+                            // Resolved once here so chat and typing frames never look up the sender
+                            UserSnapshot snapshot = userProfileCache.get(userId);
+                            if (snapshot == null) {
+                                log.warn("WebSocket connection attempt for unknown user {}", userId);
+                                throw new AuthenticationException("User not found") {};
+                            }
 
                             accessor.getSessionAttributes().put("userId", userId);
                             accessor.getSessionAttributes().put("username", username);
                             accessor.getSessionAttributes().put("token", token);
+                            userProfileCache.attachSession(accessor.getSessionId(), snapshot, accessor.getSessionAttributes());
+                            binaryPayloadFormats.selectForSession(accessor.getSessionId(), accessor.getFirstNativeHeader("content-type"));
+                            accessor.setUser(new UsernamePasswordAuthenticationToken(userId.toString(), null, List.of()));
 
                             log.debug("WebSocket user authenticated: {} ({})", username, userId);
                         } else {
@@ -86,4 +245,23 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             }
         });
     }
+
+    private boolean canSubscribe(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(CONVERSATION_TOPIC_PREFIX)) {
+            return true;
+        }
+        Object userId = accessor.getSessionAttributes() != null ? accessor.getSessionAttributes().get("userId") : null;
+        if (!(userId instanceof Long)) {
+            return false;
+        }
+
+        int end = destination.indexOf('/', CONVERSATION_TOPIC_PREFIX.length());
+        String conversationId = destination.substring(CONVERSATION_TOPIC_PREFIX.length(), end < 0 ? destination.length() : end);
+        try {
+            return conversationMembershipCache.isParticipant(Long.parseLong(conversationId), (Long) userId);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 }
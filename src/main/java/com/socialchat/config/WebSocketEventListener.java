@@ -1,36 +1,114 @@
 package com.socialchat.config;
 
-import com.socialchat.dto.UserPresenceDto;
+import com.socialchat.service.PresenceFanoutService;
+import com.socialchat.service.PresenceSessionRegistry;
 import com.socialchat.service.UserPresenceService;
+import com.socialchat.service.UserProfileCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketEventListener {
 
     private final UserPresenceService userPresenceService;
+    private final PresenceSessionRegistry presenceSessionRegistry;
+    private final UserProfileCache userProfileCache;
+    private final PresenceFanoutService presenceFanoutService;
+    private final PrioritizedOutboundExecutor prioritizedOutboundExecutor;
+
+    private static final String PRESENCE_DESTINATION = "/user/queue/presence";
+    private static final CloseStatus HEARTBEAT_TIMEOUT = CloseStatus.SESSION_NOT_RELIABLE.withReason("Heartbeat timeout");
 
     @EventListener
-    public void handleWebSocketDisconnect(SessionDisconnectEvent event) {
+    public void handleWebSocketConnect(SessionConnectEvent event) {
         try {
             SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
 
-            Object userIdObj = headerAccessor.getSessionAttributes().get("userId");
-            if (userIdObj != null) {
-                Long userId = userIdObj instanceof Long ? (Long) userIdObj : Long.parseLong(userIdObj.toString());
+            Long userId = extractUserId(headerAccessor.getSessionAttributes());
+            if (userId != null && presenceSessionRegistry.register(headerAccessor.getSessionId(), userId)) {
+                // First live session for this user on this node
+                userPresenceService.onLocalSessions(userId, true);
+                log.info("User {} connected", userId);
+            }
+        } catch (Exception e) {
+            log.error("Error handling WebSocket connect", e);
+        }
+    }
 
-                // Mark user as offline when they disconnect
-                userPresenceService.setUserOnline(userId, false);
-                log.info("User {} disconnected, marked as offline", userId);
+    /**
+     * A new subscriber to its own presence stream gets its online friends in the next delta frame.
+     */
+    @EventListener
+    public void handlePresenceSubscribe(SessionSubscribeEvent event) {
+        try {
+            SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+            if (!PRESENCE_DESTINATION.equals(headerAccessor.getDestination())) {
+                return;
+            }
+
+            Long userId = extractUserId(headerAccessor.getSessionAttributes());
+            if (userId != null) {
+                presenceFanoutService.enqueue(userId, userPresenceService.getOnlineFriends(userId));
+            }
+        } catch (Exception e) {
+            log.error("Error handling presence subscription", e);
+        }
+    }
+
+    @EventListener
+    public void handleWebSocketDisconnect(SessionDisconnectEvent event) {
+        try {
+            userProfileCache.detachSession(event.getSessionId());
+
+            // Only the user's last session going away, on every node, marks them offline
+            Long userId = presenceSessionRegistry.unregister(event.getSessionId());
+            if (userId != null) {
+                userPresenceService.onLocalSessions(userId, false);
+                log.info("User {} disconnected its last session on this node", userId);
             }
         } catch (Exception e) {
             log.error("Error handling WebSocket disconnect", e);
         }
     }
+
+    /**
+     * Expires sessions whose client stopped sending frames and heartbeats without a DISCONNECT,
+     * e.g. a crashed app or a dropped network, and closes their WebSocket so the client reconnects
+     * rather than staying subscribed while shown offline.
+     */
+    @Scheduled(fixedDelayString = "${presence.sweep-interval:5000}")
+    public void expireStaleSessions() {
+        PresenceSessionRegistry.Expired expired = presenceSessionRegistry.expireStale();
+        for (String sessionId : expired.sessionIds()) {
+            prioritizedOutboundExecutor.closeSession(sessionId, HEARTBEAT_TIMEOUT);
+        }
+        for (Long userId : expired.offlineUserIds()) {
+            try {
+                userPresenceService.onLocalSessions(userId, false);
+                log.info("User {} timed out on this node", userId);
+            } catch (Exception e) {
+                log.error("Error expiring presence for user {}", userId, e);
+            }
+        }
+    }
+
+    private Long extractUserId(Map<String, Object> sessionAttributes) {
+        Object userIdObj = sessionAttributes != null ? sessionAttributes.get("userId") : null;
+        if (userIdObj == null) {
+            return null;
+        }
+        return userIdObj instanceof Long ? (Long) userIdObj : Long.parseLong(userIdObj.toString());
+    }
 }
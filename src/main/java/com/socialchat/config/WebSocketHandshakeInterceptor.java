@@ -1,5 +1,6 @@
 package com.socialchat.config;
 
+import com.socialchat.security.JwtPrincipal;
 import com.socialchat.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -40,7 +41,8 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
             }
 
             // Validate token signature and expiration
-            if (!jwtTokenProvider.validateToken(token)) {
+            JwtPrincipal principal = jwtTokenProvider.verifyOnce(token);
+            if (principal == null) {
                 log.warn("WebSocket handshake rejected: invalid token");
                 response.setStatusCode(HttpStatus.UNAUTHORIZED);
                 return false;
@@ -53,8 +55,8 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
                 return false;
             }
 
-            Long userId = jwtTokenProvider.getUserIdFromToken(token);
-            String username = jwtTokenProvider.getUsernameFromToken(token);
+            Long userId = principal.userId();
+            String username = principal.username();
 
             if (userId == null || username == null) {
                 log.warn("WebSocket handshake rejected: unable to extract user info from token");
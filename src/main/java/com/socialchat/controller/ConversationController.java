@@ -1,17 +1,25 @@
 package com.socialchat.controller;
 
+import com.socialchat.dto.AddMembersRequest;
 import com.socialchat.dto.ConversationDto;
+import com.socialchat.dto.ConversationSyncDto;
+import com.socialchat.dto.CreateGroupRequest;
 import com.socialchat.dto.MessageDto;
-import com.socialchat.dto.PageResponse;
 import com.socialchat.dto.SendMessageRequest;
+import com.socialchat.dto.SliceResponse;
 import com.socialchat.service.ConversationService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/conversations")
 @RequiredArgsConstructor
@@ -27,13 +35,33 @@ public class ConversationController {
         return ResponseEntity.ok(conversation);
     }
 
+    @PostMapping("/groups")
+    public ResponseEntity<ConversationDto> createGroup(
+            @Valid @RequestBody CreateGroupRequest request,
+            Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        ConversationDto conversation = conversationService.createGroup(userId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(conversation);
+    }
+
+    @PostMapping("/{conversationId}/members")
+    public ResponseEntity<Void> addMembers(
+            @PathVariable Long conversationId,
+            @Valid @RequestBody AddMembersRequest request,
+            Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        conversationService.addMembers(userId, conversationId, request);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping
-    public ResponseEntity<PageResponse<ConversationDto>> getUserConversations(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
+    public ResponseEntity<SliceResponse<ConversationDto>> getUserConversations(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
             Authentication authentication) {
         Long userId = Long.parseLong(authentication.getName());
-        PageResponse<ConversationDto> conversations = conversationService.getUserConversations(userId, page, size);
+        SliceResponse<ConversationDto> conversations = conversationService.getUserConversations(userId, before, size, includeTotal);
         return ResponseEntity.ok(conversations);
     }
 
@@ -48,16 +76,28 @@ public class ConversationController {
     }
 
     @GetMapping("/{conversationId}/messages")
-    public ResponseEntity<PageResponse<MessageDto>> getConversationMessages(
+    public ResponseEntity<SliceResponse<MessageDto>> getConversationMessages(
             @PathVariable Long conversationId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
             Authentication authentication) {
         Long userId = Long.parseLong(authentication.getName());
-        PageResponse<MessageDto> messages = conversationService.getConversationMessages(userId, conversationId, page, size);
+        SliceResponse<MessageDto> messages = conversationService.getConversationMessages(userId, conversationId, before, size, includeTotal);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Body maps conversation id to the last seq the client holds; returns only the messages after it.
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<List<ConversationSyncDto>> syncConversations(
+            @RequestBody Map<Long, Long> lastSeqs,
+            Authentication authentication) {
+        Long userId = Long.parseLong(authentication.getName());
+        return ResponseEntity.ok(conversationService.syncConversations(userId, lastSeqs));
+    }
+
     @DeleteMapping("/{conversationId}")
     public ResponseEntity<Void> deleteConversation(
             @PathVariable Long conversationId,
@@ -1,10 +1,12 @@
 package com.socialchat.controller;
 
 import com.socialchat.dto.NotificationDto;
-import com.socialchat.dto.PageResponse;
+import com.socialchat.dto.SliceResponse;
 import com.socialchat.service.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -22,14 +24,15 @@ public class NotificationController {
     private NotificationService notificationService;
 
     @GetMapping
-    @Operation(summary = "Get user's notifications with pagination")
-    public ResponseEntity<PageResponse<NotificationDto>> getNotifications(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+    @Operation(summary = "Get user's notifications, paged by cursor")
+    public ResponseEntity<SliceResponse<NotificationDto>> getNotifications(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Long userId = (Long) auth.getPrincipal();
-            PageResponse<NotificationDto> notifications = notificationService.getNotifications(userId, page, size);
+            SliceResponse<NotificationDto> notifications = notificationService.getNotifications(userId, before, size, includeTotal);
             return ResponseEntity.ok(notifications);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -37,14 +40,15 @@ public class NotificationController {
     }
 
     @GetMapping("/unread")
-    @Operation(summary = "Get user's unread notifications with pagination")
-    public ResponseEntity<PageResponse<NotificationDto>> getUnreadNotifications(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+    @Operation(summary = "Get user's unread notifications, paged by cursor")
+    public ResponseEntity<SliceResponse<NotificationDto>> getUnreadNotifications(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Long userId = (Long) auth.getPrincipal();
-            PageResponse<NotificationDto> notifications = notificationService.getUnreadNotifications(userId, page, size);
+            SliceResponse<NotificationDto> notifications = notificationService.getUnreadNotifications(userId, before, size, includeTotal);
             return ResponseEntity.ok(notifications);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
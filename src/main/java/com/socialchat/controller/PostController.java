@@ -1,10 +1,13 @@
 package com.socialchat.controller;
 
 import com.socialchat.dto.*;
+import com.socialchat.service.FeedService;
 import com.socialchat.service.PostService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,6 +24,9 @@ public class PostController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private FeedService feedService;
+
     @PostMapping
     @Operation(summary = "Create a new post")
     public ResponseEntity<PostDto> createPost(@Valid @RequestBody CreatePostRequest request) {
@@ -48,14 +54,30 @@ public class PostController {
     }
 
     @GetMapping
-    @Operation(summary = "Get public timeline with pagination")
-    public ResponseEntity<PageResponse<PostDto>> getTimeline(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+    @Operation(summary = "Get public timeline, paged by cursor")
+    public ResponseEntity<SliceResponse<PostDto>> getTimeline(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Long userId = auth != null ? (Long) auth.getPrincipal() : null;
-            PageResponse<PostDto> posts = postService.getPublicTimeline(page, size, userId);
+            SliceResponse<PostDto> posts = postService.getPublicTimeline(before, size, includeTotal, userId);
+            return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    @GetMapping("/feed")
+    @Operation(summary = "Get home feed of friends' posts, paged by cursor")
+    public ResponseEntity<SliceResponse<PostDto>> getHomeFeed(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            Long userId = (Long) auth.getPrincipal();
+            SliceResponse<PostDto> posts = feedService.getHomeFeed(userId, before, size);
             return ResponseEntity.ok(posts);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -63,15 +85,16 @@ public class PostController {
     }
 
     @GetMapping("/user/{userId}")
-    @Operation(summary = "Get user's posts with pagination")
-    public ResponseEntity<PageResponse<PostDto>> getUserPosts(
+    @Operation(summary = "Get user's posts, paged by cursor")
+    public ResponseEntity<SliceResponse<PostDto>> getUserPosts(
             @PathVariable Long userId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Long currentUserId = auth != null ? (Long) auth.getPrincipal() : null;
-            PageResponse<PostDto> posts = postService.getUserPosts(userId, page, size, currentUserId);
+            SliceResponse<PostDto> posts = postService.getUserPosts(userId, before, size, includeTotal, currentUserId);
             return ResponseEntity.ok(posts);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -120,13 +143,14 @@ public class PostController {
     }
 
     @GetMapping("/{postId}/comments")
-    @Operation(summary = "Get post comments with pagination")
-    public ResponseEntity<PageResponse<CommentDto>> getComments(
+    @Operation(summary = "Get post comments, paged by cursor")
+    public ResponseEntity<SliceResponse<CommentDto>> getComments(
             @PathVariable Long postId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(SliceResponse.MAX_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
-            PageResponse<CommentDto> comments = postService.getPostComments(postId, page, size);
+            SliceResponse<CommentDto> comments = postService.getPostComments(postId, before, size, includeTotal);
             return ResponseEntity.ok(comments);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
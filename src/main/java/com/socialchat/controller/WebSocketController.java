@@ -1,13 +1,18 @@
 package com.socialchat.controller;
 
+import com.socialchat.dto.MessageAckDto;
 import com.socialchat.dto.NotificationDto;
 import com.socialchat.dto.TypingIndicatorDto;
 import com.socialchat.dto.WebSocketMessageDto;
 import com.socialchat.entity.Message;
-import com.socialchat.entity.User;
 import com.socialchat.repository.MessageRepository;
-import com.socialchat.repository.UserRepository;
+import com.socialchat.service.ChatMessageIngestService;
+import com.socialchat.service.ConversationMembershipCache;
+import com.socialchat.service.ConversationService;
+import com.socialchat.service.TypingIndicatorAggregator;
 import com.socialchat.service.UserPresenceService;
+import com.socialchat.service.UserProfileCache;
+import com.socialchat.service.UserSnapshot;
 import com.socialchat.service.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,14 +25,21 @@ import org.springframework.stereotype.Controller;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketController {
     private final WebSocketEventService eventService;
-    private final UserRepository userRepository;
     private final MessageRepository messageRepository;
+    private final ChatMessageIngestService chatMessageIngestService;
+    private final TypingIndicatorAggregator typingIndicatorAggregator;
+    private final ConversationService conversationService;
+    private final ConversationMembershipCache conversationMembershipCache;
+
+    private static final int CLIENT_MESSAGE_ID_MAX_LENGTH = 64;
     
     @Autowired
     private UserPresenceService userPresenceService;
@@ -54,6 +66,14 @@ public class WebSocketController {
         return null;
     }
 
+    private UserSnapshot extractSender(SimpMessageHeaderAccessor headerAccessor) {
+        UserSnapshot snapshot = (UserSnapshot) headerAccessor.getSessionAttributes().get(UserProfileCache.SESSION_ATTRIBUTE);
+        if (snapshot == null) {
+            throw new IllegalStateException("No user snapshot in session");
+        }
+        return snapshot;
+    }
+
     @MessageMapping("/chat/{conversationId}/message")
     public void handleMessage(
             @DestinationVariable Long conversationId,
@@ -71,23 +91,85 @@ public class WebSocketController {
                 return;
             }
             
+            if (!conversationMembershipCache.isParticipant(conversationId, userId)) {
+                log.warn("Unauthorized message attempt: user {} is not part of conversation {}", userId, conversationId);
+                eventService.sendMessageAck(headerAccessor.getSessionId(), MessageAckDto.builder()
+                        .clientMessageId(message.getClientMessageId())
+                        .conversationId(conversationId)
+                        .status("REJECTED")
+                        .build());
+                return;
+            }
+
+            if (!StringUtils.hasText(message.getClientMessageId())) {
+                message.setClientMessageId(UUID.randomUUID().toString());
+            } else if (message.getClientMessageId().length() > CLIENT_MESSAGE_ID_MAX_LENGTH) {
+                log.warn("Invalid message: clientMessageId too long");
+                eventService.sendMessageAck(headerAccessor.getSessionId(), MessageAckDto.builder()
+                        .clientMessageId(message.getClientMessageId())
+                        .conversationId(conversationId)
+                        .status("REJECTED")
+                        .build());
+                return;
+            }
+
             message.setType("MESSAGE");
             message.setCreatedAt(LocalDateTime.now());
             message.setSenderId(userId);
             message.setConversationId(conversationId);
             
-            User sender = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            message.setSenderUsername(sender.getUsername());
-            message.setSenderPhotoUrl(sender.getProfilePhotoUrl());
-            
+            UserSnapshot sender = extractSender(headerAccessor);
+            message.setSenderUsername(sender.username());
+            message.setSenderPhotoUrl(sender.profilePhotoUrl());
+
+            // Persisted asynchronously; a full queue rejects the message so the client can retry
+            boolean accepted = chatMessageIngestService.enqueue(message);
+            eventService.sendMessageAck(headerAccessor.getSessionId(), MessageAckDto.builder()
+                    .clientMessageId(message.getClientMessageId())
+                    .conversationId(conversationId)
+                    .status(accepted ? "ACCEPTED" : "REJECTED")
+                    .build());
+            if (!accepted) {
+                log.warn("Message ingest queue full, rejected message in conversation {}", conversationId);
+                return;
+            }
+
             eventService.broadcastMessage(message);
+            typingIndicatorAggregator.stopTyping(conversationId, userId);
             log.info("Message sent in conversation {} by user {}", conversationId, userId);
         } catch (Exception e) {
             log.error("Error handling message", e);
         }
     }
 
+    /**
+     * Resumes after a reconnect: payload maps conversation id to the last seq the client holds, and the
+     * missed messages are sent back to this session on /user/queue/sync. Mapped outside /chat so
+     * sync requests are spread over the inbound shards by session rather than piling onto one.
+     */
+    @MessageMapping("/sync")
+    public void handleSync(
+            @Payload Map<Long, Long> lastSeqs,
+            SimpMessageHeaderAccessor headerAccessor) {
+        try {
+            Long userId = extractUserId(headerAccessor);
+            if (userId == null) {
+                log.error("Unauthorized sync attempt: invalid userId");
+                return;
+            }
+
+            if (lastSeqs == null) {
+                log.warn("Invalid sync request: null payload");
+                return;
+            }
+
+            eventService.sendSyncResult(headerAccessor.getSessionId(),
+                    conversationService.syncConversations(userId, lastSeqs));
+        } catch (Exception e) {
+            log.error("Error handling sync", e);
+        }
+    }
+
     @MessageMapping("/chat/{conversationId}/typing")
     public void handleTypingIndicator(
             @DestinationVariable Long conversationId,
@@ -104,15 +186,18 @@ public class WebSocketController {
                 log.warn("Invalid typing indicator: null payload");
                 return;
             }
+
+            if (!conversationMembershipCache.isParticipant(conversationId, userId)) {
+                log.warn("Unauthorized typing indicator: user {} is not part of conversation {}", userId, conversationId);
+                return;
+            }
             
             indicator.setUserId(userId);
             indicator.setConversationId(conversationId);
             
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            indicator.setUsername(user.getUsername());
+            indicator.setUsername(extractSender(headerAccessor).username());
             
-            eventService.broadcastTypingIndicator(indicator);
+            typingIndicatorAggregator.onIndicator(indicator);
         } catch (Exception e) {
             log.error("Error handling typing indicator", e);
         }
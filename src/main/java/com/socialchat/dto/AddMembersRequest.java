@@ -0,0 +1,16 @@
+package com.socialchat.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddMembersRequest {
+    @NotEmpty(message = "No members to add")
+    private List<Long> memberIds;
+}
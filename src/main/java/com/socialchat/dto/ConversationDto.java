@@ -13,10 +13,14 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class ConversationDto {
     private Long id;
+    private String type;
+    private String title;
     private Long participantId;
     private String participantUsername;
     private String participantPhotoUrl;
     private String lastMessage;
     private LocalDateTime lastMessageTime;
     private boolean unread;
+    private int unreadCount;
+    private LocalDateTime updatedAt;
 }
@@ -0,0 +1,19 @@
+package com.socialchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSyncDto {
+    private Long conversationId;
+    private Long lastSeq; // newest seq stored for the conversation
+    private List<MessageDto> messages; // after the client's seq, oldest first
+    private boolean hasMore; // sync again from the last returned seq
+}
@@ -0,0 +1,22 @@
+package com.socialchat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateGroupRequest {
+    @NotBlank(message = "Group title cannot be empty")
+    @Size(max = 100, message = "Group title must not exceed 100 characters")
+    private String title;
+
+    @NotEmpty(message = "A group needs at least one other member")
+    private List<Long> memberIds;
+}
@@ -0,0 +1,16 @@
+package com.socialchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageAckDto {
+    private String clientMessageId;
+    private Long conversationId;
+    private String status; // ACCEPTED, REJECTED
+}
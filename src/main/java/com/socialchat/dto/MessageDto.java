@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class MessageDto {
     private Long id;
+    private Long seq;
     private Long senderId;
     private String senderUsername;
     private String senderPhotoUrl;
@@ -11,12 +11,13 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class PageResponse<T> {
+public class SliceResponse<T> {
+    // Upper bound for the ?size= list parameters
+    public static final int MAX_PAGE_SIZE = 100;
+
     private List<T> content;
-    private int pageNumber;
     private int pageSize;
-    private long totalElements;
-    private int totalPages;
     private boolean hasNext;
-    private boolean hasPrevious;
+    private String nextCursor; // pass back as ?before= to fetch the next slice
+    private Long totalElements; // only populated when the client asks for it
 }
@@ -13,11 +13,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class WebSocketMessageDto {
     private Long id;
+    private String clientMessageId;
     private Long conversationId;
+    private Long seq; // set on COMMITTED events once the message is stored
     private Long senderId;
     private String senderUsername;
     private String senderPhotoUrl;
     private String content;
     private LocalDateTime createdAt;
-    private String type; // MESSAGE, TYPING, PRESENCE, NOTIFICATION
+    private String type; // MESSAGE, COMMITTED, REJECTED, READ, LEFT, TYPING, PRESENCE, NOTIFICATION
 }
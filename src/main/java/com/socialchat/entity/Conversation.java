@@ -20,14 +20,54 @@ public class Conversation {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ConversationType type = ConversationType.DIRECT;
+
+    @Column(length = 100)
+    private String title;
+
+    // Set for direct conversations only; group members live in conversation_members
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user1_id", nullable = false)
+    @JoinColumn(name = "user1_id")
     private User user1;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user2_id", nullable = false)
+    @JoinColumn(name = "user2_id")
     private User user2;
 
+    // Inbox state below is maintained by bulk updates in ConversationRepository
+    @Column(insertable = false, updatable = false)
+    private Long lastMessageId;
+
+    @Column(insertable = false, updatable = false)
+    private String lastMessagePreview;
+
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer user1UnreadCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer user2UnreadCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long lastSeq = 0L;
+
+    // Newest message id each participant has read; read state of a message is derived from these
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long user1LastReadId = 0L;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long user2LastReadId = 0L;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -38,4 +78,8 @@ public class Conversation {
 
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Message> messages = new HashSet<>();
+
+    public enum ConversationType {
+        DIRECT, GROUP
+    }
 }
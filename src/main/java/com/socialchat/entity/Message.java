@@ -21,6 +21,10 @@ public class Message {
     @JoinColumn(name = "conversation_id", nullable = false)
     private Conversation conversation;
 
+    // Position within the conversation, reserved from conversations.last_seq when the message is stored
+    @Column(nullable = false, updatable = false)
+    private Long seq;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
@@ -30,9 +34,11 @@ public class Message {
 
     private String imageUrl;
 
+    // Set by the sending client (or the ingest pipeline) to make retried writes idempotent
+    @Column(length = 64)
+    private String clientMessageId;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
-
-    private LocalDateTime readAt;
 }
@@ -12,7 +12,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_user_id", columnList = "user_id"),
     @Index(name = "idx_is_read", columnList = "is_read"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_user_created", columnList = "user_id, created_at")
+    @Index(name = "idx_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_user_created_id", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_user_read_created_id", columnList = "user_id, is_read, created_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -32,6 +32,15 @@ public class Post {
     @Column(nullable = false)
     private Boolean isPublic = true;
 
+    // Maintained with atomic SQL increments in PostRepository, never through entity updates
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private Long likeCount = 0L;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private Long commentCount = 0L;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -45,12 +54,4 @@ public class Post {
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Comment> comments = new HashSet<>();
-
-    public Long getLikeCount() {
-        return (likes != null)? (long) likes.size(): 0;
-    }
-
-    public Long getCommentCount() {
-        return (comments != null)? (long) comments.size(): 0;
-    }
 }
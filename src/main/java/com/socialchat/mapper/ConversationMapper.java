@@ -4,41 +4,106 @@ import com.socialchat.dto.ConversationDto;
 import com.socialchat.dto.MessageDto;
 import com.socialchat.entity.Conversation;
 import com.socialchat.entity.Message;
-import com.socialchat.repository.MessageRepository;
-import com.socialchat.repository.UserRepository;
+import com.socialchat.entity.User;
 
-public class ConversationMapper {
-    public static ConversationDto mapToDto(Conversation conversation, Long currentUserId, 
-                                           MessageRepository messageRepository, UserRepository userRepository) {
-        Long user1Id = conversation.getUser1().getId();
-        Long user2Id = conversation.getUser2().getId();
-        Long participantId = user1Id.equals(currentUserId) ? user2Id : user1Id;
-
-        var participant = userRepository.findById(participantId)
-                .orElseThrow(() -> new RuntimeException("Participant not found"));
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 
-        var lastMessage = messageRepository.findFirstByConversationIdOrderByCreatedAtDesc(conversation.getId())
-                .orElse(null);
+public class ConversationMapper {
+    public static ConversationDto mapToDto(Conversation conversation, Long currentUserId) {
+        boolean currentIsUser1 = conversation.getUser1().getId().equals(currentUserId);
+        User participant = currentIsUser1 ? conversation.getUser2() : conversation.getUser1();
+        int unreadCount = currentIsUser1 ? conversation.getUser1UnreadCount() : conversation.getUser2UnreadCount();
 
         return ConversationDto.builder()
                 .id(conversation.getId())
-                .participantId(participantId)
+                .type(conversation.getType().name())
+                .participantId(participant.getId())
                 .participantUsername(participant.getUsername())
                 .participantPhotoUrl(participant.getProfilePhotoUrl())
-                .lastMessage(lastMessage != null ? lastMessage.getText() : null)
-                .lastMessageTime(lastMessage != null ? lastMessage.getCreatedAt() : null)
-                .unread(lastMessage != null && lastMessage.getReadAt() == null && !lastMessage.getSender().getId().equals(currentUserId))
+                .lastMessage(conversation.getLastMessagePreview())
+                .lastMessageTime(conversation.getLastMessageAt())
+                .unread(unreadCount > 0)
+                .unreadCount(unreadCount)
+                .updatedAt(conversation.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Group conversations have no participant; unreadCount is the viewing member's.
+     */
+    public static ConversationDto mapGroupToDto(Conversation conversation, int unreadCount) {
+        return ConversationDto.builder()
+                .id(conversation.getId())
+                .type(conversation.getType().name())
+                .title(conversation.getTitle())
+                .lastMessage(conversation.getLastMessagePreview())
+                .lastMessageTime(conversation.getLastMessageAt())
+                .unread(unreadCount > 0)
+                .unreadCount(unreadCount)
+                .updatedAt(conversation.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Maps a row of ConversationRepository.findInboxSliceBefore.
+     */
+    public static ConversationDto mapInboxRowToDto(Object[] row) {
+        int unreadCount = ((Number) row[7]).intValue();
+        return ConversationDto.builder()
+                .id(((Number) row[0]).longValue())
+                .type((String) row[8])
+                .title((String) row[9])
+                .participantId(row[1] != null ? ((Number) row[1]).longValue() : null)
+                .participantUsername((String) row[2])
+                .participantPhotoUrl((String) row[3])
+                .lastMessage((String) row[4])
+                .lastMessageTime(toLocalDateTime(row[5]))
+                .unread(unreadCount > 0)
+                .unreadCount(unreadCount)
+                .updatedAt(toLocalDateTime(row[6]))
                 .build();
     }
 
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
     public static MessageDto mapMessageToDto(Message message) {
+        return mapMessageToDto(message, false);
+    }
+
+    /**
+     * read tells whether the recipient's read watermark has reached the message.
+     */
+    public static MessageDto mapMessageToDto(Message message, boolean read) {
         return MessageDto.builder()
                 .id(message.getId())
+                .seq(message.getSeq())
                 .senderId(message.getSender().getId())
                 .senderUsername(message.getSender().getUsername())
                 .senderPhotoUrl(message.getSender().getProfilePhotoUrl())
                 .content(message.getText())
-                .read(message.getReadAt() != null)
+                .read(read)
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Copy of a shared (cached) message with the viewer's read state applied.
+     */
+    public static MessageDto withRead(MessageDto message, boolean read) {
+        return MessageDto.builder()
+                .id(message.getId())
+                .seq(message.getSeq())
+                .senderId(message.getSenderId())
+                .senderUsername(message.getSenderUsername())
+                .senderPhotoUrl(message.getSenderPhotoUrl())
+                .content(message.getContent())
+                .read(read)
                 .createdAt(message.getCreatedAt())
                 .build();
     }
@@ -1,16 +1,43 @@
 package com.socialchat.mapper;
 
 import com.socialchat.dto.CommentDto;
-import com.socialchat.dto.PageResponse;
+import com.socialchat.dto.PageCursor;
 import com.socialchat.dto.PostDto;
+import com.socialchat.dto.SliceResponse;
 import com.socialchat.entity.Comment;
 import com.socialchat.entity.Post;
 import com.socialchat.repository.LikeRepository;
-import org.springframework.data.domain.Page;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 public class PostMapper {
     public static PostDto convertToDto(Post post, Long currentUserId, LikeRepository likeRepository) {
         boolean isLiked = currentUserId != null && likeRepository.existsByUserIdAndPostId(currentUserId, post.getId());
+        return convertToDto(post, isLiked);
+    }
+
+    /**
+     * Maps a list of posts, resolving "liked by current user" for every post with a single IN query.
+     */
+    public static List<PostDto> convertListToDtos(List<Post> posts, Long currentUserId, LikeRepository likeRepository) {
+        Set<Long> likedPostIds = findLikedPostIds(posts, currentUserId, likeRepository);
+        return posts.stream()
+                .map(post -> convertToDto(post, likedPostIds.contains(post.getId())))
+                .toList();
+    }
+
+    private static Set<Long> findLikedPostIds(List<Post> posts, Long currentUserId, LikeRepository likeRepository) {
+        if (currentUserId == null || posts.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+        return likeRepository.findLikedPostIds(currentUserId, postIds);
+    }
+
+    public static PostDto convertToDto(Post post, boolean isLiked) {
         return PostDto.builder()
                 .id(post.getId())
                 .authorId(post.getAuthor().getId())
@@ -40,15 +67,24 @@ public class PostMapper {
                 .build();
     }
 
-    public static <T> PageResponse<T> convertPageToResponse(Page<T> page) {
-        return PageResponse.<T>builder()
-                .content(page.getContent())
-                .pageNumber(page.getNumber())
-                .pageSize(page.getSize())
-                .totalElements(page.getTotalElements())
-                .totalPages(page.getTotalPages())
-                .hasNext(page.hasNext())
-                .hasPrevious(page.hasPrevious())
+    /**
+     * Builds a keyset slice from rows fetched with a limit of size + 1; the extra row only signals hasNext.
+     */
+    public static <E, T> SliceResponse<T> convertSliceToResponse(List<E> rows, int size, Function<E, PageCursor> cursorOf,
+                                                               Function<List<E>, List<T>> converter, Long totalElements) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        boolean hasNext = rows.size() > size;
+        List<E> sliceRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(sliceRows.get(sliceRows.size() - 1)).encode() : null;
+
+        return SliceResponse.<T>builder()
+                .content(converter.apply(sliceRows))
+                .pageSize(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(totalElements)
                 .build();
     }
 }
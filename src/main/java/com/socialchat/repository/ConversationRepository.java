@@ -1,21 +1,210 @@
 package com.socialchat.repository;
 
 import com.socialchat.entity.Conversation;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
-    @Query("SELECT c FROM Conversation c WHERE (c.user1.id = :userId1 AND c.user2.id = :userId2) OR (c.user1.id = :userId2 AND c.user2.id = :userId1)")
-    Optional<Conversation> findByParticipants(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
-    
-    @Query("SELECT c FROM Conversation c WHERE c.user1.id = :userId OR c.user2.id = :userId ORDER BY c.updatedAt DESC")
-    Page<Conversation> findUserConversations(@Param("userId") Long userId, Pageable pageable);
+    // Participants are stored canonically (user1 < user2), so a pair is one lookup on unique_participants
+    @Query("SELECT c FROM Conversation c WHERE c.user1.id = :user1Id AND c.user2.id = :user2Id")
+    Optional<Conversation> findByParticipants(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
+    // Locking read: sees a row committed by a concurrent insertIfAbsent after this transaction's snapshot
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM Conversation c WHERE c.user1.id = :user1Id AND c.user2.id = :user2Id")
+    Optional<Conversation> findByParticipantsForShare(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
+    // Exclusive row lock held until commit, so concurrent member additions to a group run one at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conversation c WHERE c.id = :id")
+    Optional<Conversation> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO conversations (user1_id, user2_id, created_at, updated_at) " +
+            "VALUES (:user1Id, :user2Id, NOW(), NOW())", nativeQuery = true)
+    int insertIfAbsent(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
+    /**
+     * Inbox rows after the (updated_at, id) cursor, newest first. Each branch is a range scan on
+     * idx_user1_updated / idx_user2_updated for direct conversations, or on the membership index
+     * idx_user_updated for groups; the participant is joined once on the merged rows.
+     * Columns: id, participant id, username, photo url, preview, last message at, updated_at, unread count,
+     * type, title. Group rows have no participant.
+     */
+    @Query(value = "SELECT c.id, u.id, u.username, u.profile_photo_url, c.last_message_preview, c.last_message_at, " +
+            "c.updated_at, c.unread_count, c.type, c.title FROM (" +
+            "(SELECT c1.id, c1.user2_id AS participant_id, c1.last_message_preview, c1.last_message_at, c1.updated_at, " +
+            "c1.user1_unread_count AS unread_count, c1.type, c1.title FROM conversations c1 " +
+            "WHERE c1.user1_id = :userId AND (c1.updated_at < :updatedAt OR (c1.updated_at = :updatedAt AND c1.id < :id)) " +
+            "ORDER BY c1.updated_at DESC, c1.id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT c2.id, c2.user1_id AS participant_id, c2.last_message_preview, c2.last_message_at, c2.updated_at, " +
+            "c2.user2_unread_count AS unread_count, c2.type, c2.title FROM conversations c2 " +
+            "WHERE c2.user2_id = :userId AND (c2.updated_at < :updatedAt OR (c2.updated_at = :updatedAt AND c2.id < :id)) " +
+            "ORDER BY c2.updated_at DESC, c2.id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT cm.conversation_id, NULL, c3.last_message_preview, c3.last_message_at, cm.updated_at, " +
+            "cm.unread_count, c3.type, c3.title FROM conversation_members cm JOIN conversations c3 ON c3.id = cm.conversation_id " +
+            "WHERE cm.user_id = :userId AND (cm.updated_at < :updatedAt OR (cm.updated_at = :updatedAt AND cm.conversation_id < :id)) " +
+            "ORDER BY cm.updated_at DESC, cm.conversation_id DESC LIMIT :limit)" +
+            ") c LEFT JOIN users u ON u.id = c.participant_id " +
+            "ORDER BY c.updated_at DESC, c.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findInboxSliceBefore(@Param("userId") Long userId, @Param("updatedAt") LocalDateTime updatedAt,
+                                        @Param("id") Long id, @Param("limit") int limit);
+
+    @Query(value = "SELECT (SELECT COUNT(*) FROM conversations c WHERE c.user1_id = :userId OR c.user2_id = :userId) + " +
+            "(SELECT COUNT(*) FROM conversation_members cm WHERE cm.user_id = :userId)", nativeQuery = true)
+    long countUserConversations(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageId = :messageId, c.lastMessagePreview = :preview, " +
+            "c.lastMessageAt = :sentAt, c.updatedAt = :sentAt, " +
+            "c.user1UnreadCount = CASE WHEN c.user1.id = :senderId THEN c.user1UnreadCount ELSE c.user1UnreadCount + 1 END, " +
+            "c.user2UnreadCount = CASE WHEN c.user2.id = :senderId THEN c.user2UnreadCount ELSE c.user2UnreadCount + 1 END " +
+            "WHERE c.id = :conversationId")
+    int recordMessage(@Param("conversationId") Long conversationId, @Param("messageId") Long messageId,
+                      @Param("senderId") Long senderId, @Param("preview") String preview,
+                      @Param("sentAt") LocalDateTime sentAt);
+
+    // Columns: id, user1 id, user2 id, last seq, user1 last read id, user2 last read id, type (user ids are null for groups)
+    @Query("SELECT c.id, c.user1.id, c.user2.id, c.lastSeq, c.user1LastReadId, c.user2LastReadId, c.type " +
+            "FROM Conversation c WHERE c.id IN :conversationIds")
+    List<Object[]> findParticipantsByIdIn(@Param("conversationIds") Collection<Long> conversationIds);
+
+    /**
+     * Batched form of recordMessage for messages already inserted: per conversation, points the inbox
+     * at the newest of the given messages and adds each participant's new unread messages in one statement.
+     */
+    @Modifying
+    @Query(value = "UPDATE conversations c " +
+            "JOIN (SELECT m.conversation_id, MAX(m.id) AS last_id, " +
+            "SUM(IFNULL(m.sender_id <> cm.user1_id, 0)) AS user1_new, SUM(IFNULL(m.sender_id <> cm.user2_id, 0)) AS user2_new " +
+            "FROM messages m JOIN conversations cm ON cm.id = m.conversation_id " +
+            "WHERE m.id IN (:messageIds) GROUP BY m.conversation_id) b ON b.conversation_id = c.id " +
+            "JOIN messages lm ON lm.id = b.last_id " +
+            "SET c.last_message_id = lm.id, c.last_message_preview = LEFT(lm.text, 255), " +
+            "c.last_message_at = lm.created_at, c.updated_at = lm.created_at, " +
+            "c.user1_unread_count = c.user1_unread_count + b.user1_new, " +
+            "c.user2_unread_count = c.user2_unread_count + b.user2_new",
+            nativeQuery = true)
+    int recordMessageBatch(@Param("messageIds") Collection<Long> messageIds);
+
+    /**
+     * Group counterpart of recordMessage: adds the message to every member's unread count except the
+     * sender's in one range update over the conversation's member rows. Matches nothing for direct
+     * conversations, which have no member rows.
+     */
+    @Modifying
+    @Query(value = "UPDATE conversation_members SET unread_count = unread_count + (user_id <> :senderId), " +
+            "last_message_id = :messageId, updated_at = :sentAt WHERE conversation_id = :conversationId",
+            nativeQuery = true)
+    int recordMemberMessage(@Param("conversationId") Long conversationId, @Param("messageId") Long messageId,
+                            @Param("senderId") Long senderId, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Batched form of recordMemberMessage: one statement for all group messages of a batch, however
+     * many members the groups have. Each member gains the batch's messages minus the ones they sent.
+     */
+    @Modifying
+    @Query(value = "UPDATE conversation_members cm " +
+            "JOIN (SELECT m.conversation_id, MAX(m.id) AS last_id, COUNT(*) AS total FROM messages m " +
+            "WHERE m.id IN (:messageIds) GROUP BY m.conversation_id) b ON b.conversation_id = cm.conversation_id " +
+            "JOIN messages lm ON lm.id = b.last_id " +
+            "LEFT JOIN (SELECT m.conversation_id, m.sender_id, COUNT(*) AS sent FROM messages m " +
+            "WHERE m.id IN (:messageIds) GROUP BY m.conversation_id, m.sender_id) s " +
+            "ON s.conversation_id = cm.conversation_id AND s.sender_id = cm.user_id " +
+            "SET cm.unread_count = cm.unread_count + b.total - IFNULL(s.sent, 0), " +
+            "cm.last_message_id = lm.id, cm.updated_at = lm.created_at",
+            nativeQuery = true)
+    int recordMemberMessageBatch(@Param("messageIds") Collection<Long> messageIds);
+
+    /**
+     * Reserves the next count sequence numbers of a conversation. The row lock taken here is held until
+     * commit, so sequence numbers become visible in order; read the new end with findLastSeq.
+     */
+    @Modifying
+    @Query(value = "UPDATE conversations SET last_seq = last_seq + :count, updated_at = updated_at WHERE id = :conversationId",
+            nativeQuery = true)
+    int reserveSeq(@Param("conversationId") Long conversationId, @Param("count") int count);
+
+    @Query(value = "SELECT last_seq FROM conversations WHERE id = :conversationId", nativeQuery = true)
+    long findLastSeq(@Param("conversationId") Long conversationId);
+
+    /**
+     * Advances the user's read watermark to messageId. The unread count is cleared only if no newer
+     * message has been recorded since, so a message arriving mid-read stays unread. Returns 0 when the
+     * watermark had already reached messageId.
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET " +
+            "c.user1UnreadCount = CASE WHEN c.user1.id = :userId AND c.lastMessageId <= :messageId THEN 0 ELSE c.user1UnreadCount END, " +
+            "c.user2UnreadCount = CASE WHEN c.user2.id = :userId AND c.lastMessageId <= :messageId THEN 0 ELSE c.user2UnreadCount END, " +
+            "c.user1LastReadId = CASE WHEN c.user1.id = :userId THEN :messageId ELSE c.user1LastReadId END, " +
+            "c.user2LastReadId = CASE WHEN c.user2.id = :userId THEN :messageId ELSE c.user2LastReadId END, " +
+            "c.updatedAt = c.updatedAt " +
+            "WHERE c.id = :conversationId AND ((c.user1.id = :userId AND c.user1LastReadId < :messageId) " +
+            "OR (c.user2.id = :userId AND c.user2LastReadId < :messageId))")
+    int advanceReadWatermark(@Param("conversationId") Long conversationId, @Param("userId") Long userId,
+                             @Param("messageId") Long messageId);
+
+    /**
+     * Group counterpart of advanceReadWatermark. Only the member's own row is touched; it carries the
+     * conversation's last message id, so a message recorded mid-read still keeps the count.
+     */
+    @Modifying
+    @Query(value = "UPDATE conversation_members SET " +
+            "unread_count = IF(last_message_id <= :messageId, 0, unread_count), last_read_id = :messageId " +
+            "WHERE conversation_id = :conversationId AND user_id = :userId AND last_read_id < :messageId",
+            nativeQuery = true)
+    int advanceMemberReadWatermark(@Param("conversationId") Long conversationId, @Param("userId") Long userId,
+                                   @Param("messageId") Long messageId);
+
+    /**
+     * Adds the existing users among userIds to a group, skipping current members, in one statement.
+     * Returns the number of members added.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO conversation_members (conversation_id, user_id, last_message_id, updated_at) " +
+            "SELECT c.id, u.id, c.last_message_id, c.updated_at FROM conversations c JOIN users u ON u.id IN (:userIds) " +
+            "WHERE c.id = :conversationId",
+            nativeQuery = true)
+    int insertMembers(@Param("conversationId") Long conversationId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM conversation_members WHERE conversation_id = :conversationId AND user_id = :userId",
+            nativeQuery = true)
+    int deleteMember(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
+    @Query(value = "SELECT user_id FROM conversation_members WHERE conversation_id = :conversationId ORDER BY user_id",
+            nativeQuery = true)
+    List<Long> findMemberIds(@Param("conversationId") Long conversationId);
+
+    @Query(value = "SELECT COUNT(*) FROM conversation_members WHERE conversation_id = :conversationId AND user_id = :userId",
+            nativeQuery = true)
+    long countMembership(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
+    // (conversation id, user id) of the group memberships among the given ids; one range scan per group on the primary key
+    @Query(value = "SELECT conversation_id, user_id FROM conversation_members " +
+            "WHERE conversation_id IN (:conversationIds) AND user_id IN (:userIds)",
+            nativeQuery = true)
+    List<Object[]> findMemberships(@Param("conversationIds") Collection<Long> conversationIds,
+                                   @Param("userIds") Collection<Long> userIds);
+
+    // Columns: conversation id, last read id
+    @Query(value = "SELECT conversation_id, last_read_id FROM conversation_members " +
+            "WHERE user_id = :userId AND conversation_id IN (:conversationIds)",
+            nativeQuery = true)
+    List<Object[]> findMemberLastReadIds(@Param("userId") Long userId, @Param("conversationIds") Collection<Long> conversationIds);
 }
@@ -0,0 +1,55 @@
+package com.socialchat.repository;
+
+import com.socialchat.entity.FeedItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FeedItemRepository extends JpaRepository<FeedItem, Long> {
+    // Range scan over unique_user_post (user_id, post_id); post ids grow with creation time
+    @Query(value = "SELECT fi.post_id FROM feed_items fi WHERE fi.user_id = :userId AND fi.post_id < :before " +
+            "ORDER BY fi.post_id DESC LIMIT :limit", nativeQuery = true)
+    List<Long> findFeedPostIds(@Param("userId") Long userId, @Param("before") long before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO feed_items (user_id, post_id, created_at) VALUES (:userId, :postId, NOW())",
+            nativeQuery = true)
+    int insertFeedItem(@Param("userId") Long userId, @Param("postId") Long postId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO feed_items (user_id, post_id, created_at) " +
+            "SELECT CASE WHEN f.sender_id = :authorId THEN f.receiver_id ELSE f.sender_id END, :postId, NOW() " +
+            "FROM friend_requests f " +
+            "WHERE (f.sender_id = :authorId OR f.receiver_id = :authorId) AND f.status = 'ACCEPTED'",
+            nativeQuery = true)
+    int fanOutToFriends(@Param("authorId") Long authorId, @Param("postId") Long postId);
+
+    @Query(value = "SELECT fs.author_id FROM feed_sources fs WHERE fs.user_id = :userId", nativeQuery = true)
+    List<Long> findPullSourceAuthorIds(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO feed_sources (user_id, author_id, created_at) VALUES (:userId, :authorId, NOW())",
+            nativeQuery = true)
+    int insertPullSource(@Param("userId") Long userId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO feed_sources (user_id, author_id, created_at) " +
+            "SELECT CASE WHEN f.sender_id = :authorId THEN f.receiver_id ELSE f.sender_id END, :authorId, NOW() " +
+            "FROM friend_requests f " +
+            "WHERE (f.sender_id = :authorId OR f.receiver_id = :authorId) AND f.status = 'ACCEPTED'",
+            nativeQuery = true)
+    int insertPullSourceForFriends(@Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = "UPDATE users SET fanout_on_read = TRUE, updated_at = updated_at WHERE id = :userId AND fanout_on_read = FALSE",
+            nativeQuery = true)
+    int markFanoutOnRead(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM users WHERE id = :userId AND fanout_on_read = TRUE", nativeQuery = true)
+    long countFanoutOnRead(@Param("userId") Long userId);
+}
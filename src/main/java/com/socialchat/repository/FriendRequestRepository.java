@@ -2,6 +2,8 @@ package com.socialchat.repository;
 
 import com.socialchat.entity.FriendRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,11 @@ public interface FriendRequestRepository extends JpaRepository<FriendRequest, Lo
     Optional<FriendRequest> findBySenderIdAndReceiverId(Long senderId, Long receiverId);
     List<FriendRequest> findByReceiverIdAndStatus(Long receiverId, FriendRequest.FriendRequestStatus status);
     List<FriendRequest> findBySenderIdAndStatus(Long senderId, FriendRequest.FriendRequestStatus status);
+
+    @Query("SELECT COUNT(f) FROM FriendRequest f WHERE (f.sender.id = :userId OR f.receiver.id = :userId) AND f.status = :status")
+    long countByParticipantAndStatus(@Param("userId") Long userId, @Param("status") FriendRequest.FriendRequestStatus status);
+
+    @Query("SELECT CASE WHEN f.sender.id = :userId THEN f.receiver.id ELSE f.sender.id END FROM FriendRequest f " +
+            "WHERE (f.sender.id = :userId OR f.receiver.id = :userId) AND f.status = :status")
+    List<Long> findFriendIds(@Param("userId") Long userId, @Param("status") FriendRequest.FriendRequestStatus status);
 }
@@ -4,15 +4,36 @@ import com.socialchat.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MessageRepository extends JpaRepository<Message, Long> {
+public interface MessageRepository extends JpaRepository<Message, Long>, MessageRepositoryCustom {
     Page<Message> findByConversationIdOrderByCreatedAtDesc(Long conversationId, Pageable pageable);
     
     Optional<Message> findFirstByConversationIdOrderByCreatedAtDesc(Long conversationId);
     
     Page<Message> findByConversationId(Long conversationId, Pageable pageable);
+
+    // Newest-first keyset pages on unique_conversation_seq; seq is exact, unlike the rounded created_at
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+            "ORDER BY m.seq DESC")
+    List<Message> findByConversationFirstSlice(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+            "AND m.seq < :beforeSeq ORDER BY m.seq DESC")
+    List<Message> findByConversationBeforeSeq(@Param("conversationId") Long conversationId, @Param("beforeSeq") long beforeSeq,
+                                              Pageable pageable);
+
+    long countByConversationId(Long conversationId);
+
+    // Range scan on unique_conversation_seq; callers fetch limit + 1 rows to detect more
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+            "AND m.seq > :afterSeq ORDER BY m.seq ASC")
+    List<Message> findByConversationAfterSeq(@Param("conversationId") Long conversationId, @Param("afterSeq") long afterSeq,
+                                             Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package com.socialchat.repository;
+
+import com.socialchat.entity.Message;
+
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+    /**
+     * Inserts all messages with one multi-row INSERT. Rows whose (sender, client message id) already
+     * exists are skipped, so a retried batch does not duplicate messages.
+     */
+    int insertAll(List<Message> messages);
+
+    /**
+     * Sets the id and seq of every message whose (sender, client message id) is stored; others are left untouched.
+     */
+    void resolveIds(List<Message> messages);
+}
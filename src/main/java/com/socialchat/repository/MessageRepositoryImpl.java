@@ -0,0 +1,72 @@
+package com.socialchat.repository;
+
+import com.socialchat.entity.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertAll(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        // Only a duplicate key is skipped; unlike INSERT IGNORE, truncation and foreign key errors still fail
+        String sql = "INSERT INTO messages (conversation_id, seq, sender_id, text, created_at, client_message_id) VALUES " +
+                String.join(", ", Collections.nCopies(messages.size(), "(?, ?, ?, ?, ?, ?)")) +
+                " ON DUPLICATE KEY UPDATE id = id";
+        List<Object> args = new ArrayList<>(messages.size() * 6);
+        for (Message message : messages) {
+            args.add(message.getConversation().getId());
+            args.add(message.getSeq());
+            args.add(message.getSender().getId());
+            args.add(message.getText());
+            args.add(Timestamp.valueOf(message.getCreatedAt()));
+            args.add(message.getClientMessageId());
+        }
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    @Override
+    public void resolveIds(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        String sql = "SELECT id, seq, sender_id, client_message_id FROM messages WHERE (sender_id, client_message_id) IN (" +
+                String.join(", ", Collections.nCopies(messages.size(), "(?, ?)")) + ")";
+        List<Object> args = new ArrayList<>(messages.size() * 2);
+        for (Message message : messages) {
+            args.add(message.getSender().getId());
+            args.add(message.getClientMessageId());
+        }
+
+        Map<String, long[]> stored = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            stored.put(key(rs.getLong("sender_id"), rs.getString("client_message_id")),
+                    new long[]{rs.getLong("id"), rs.getLong("seq")});
+        }, args.toArray());
+
+        for (Message message : messages) {
+            long[] row = stored.get(key(message.getSender().getId(), message.getClientMessageId()));
+            if (row != null) {
+                message.setId(row[0]);
+                message.setSeq(row[1]);
+            }
+        }
+    }
+
+    private static String key(Long senderId, String clientMessageId) {
+        return senderId + ":" + clientMessageId;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,9 +18,31 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
     long countByUserIdAndIsReadFalse(Long userId);
+
+    long countByUserId(Long userId);
     
     List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId);
     
     @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.isRead = false ORDER BY n.createdAt DESC LIMIT 10")
     List<Notification> findLatestUnreadNotifications(@Param("userId") Long userId);
+
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.sender WHERE n.user.id = :userId " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByUserFirstSlice(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.sender WHERE n.user.id = :userId " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByUserSliceBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.sender WHERE n.user.id = :userId AND n.isRead = false " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadByUserFirstSlice(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.sender WHERE n.user.id = :userId AND n.isRead = false " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadByUserSliceBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") Long id, Pageable pageable);
 }
@@ -1,13 +1,76 @@
 package com.socialchat.repository;
 
 import com.socialchat.entity.Post;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
-    Page<Post> findByIsPublicTrueOrderByCreatedAtDesc(Pageable pageable);
-    Page<Post> findByAuthorIdOrderByCreatedAtDesc(Long authorId, Pageable pageable);
+    // Keyset pages on (created_at, id); callers fetch size + 1 rows to detect a next slice
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.isPublic = true ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findPublicFirstSlice(Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.isPublic = true " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findPublicSliceBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.author.id = :authorId ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findByAuthorFirstSlice(@Param("authorId") Long authorId, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.author.id = :authorId " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findByAuthorSliceBefore(@Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id, Pageable pageable);
+
+    long countByIsPublicTrue();
+
+    long countByAuthorId(Long authorId);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.id IN :postIds")
+    List<Post> findAllWithAuthorByIdIn(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT p.id FROM Post p WHERE p.author.id IN :authorIds AND p.id < :before ORDER BY p.id DESC")
+    List<Long> findRecentPostIdsByAuthors(@Param("authorIds") Collection<Long> authorIds, @Param("before") long before, Pageable pageable);
+
+    // Counter updates keep updated_at untouched so likes/comments don't look like post edits
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.likeCount = p.likeCount + 1, p.updatedAt = p.updatedAt WHERE p.id = :postId")
+    int incrementLikeCount(@Param("postId") Long postId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.likeCount = p.likeCount - 1, p.updatedAt = p.updatedAt WHERE p.id = :postId AND p.likeCount > 0")
+    int decrementLikeCount(@Param("postId") Long postId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + 1, p.updatedAt = p.updatedAt WHERE p.id = :postId")
+    int incrementCommentCount(@Param("postId") Long postId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount - 1, p.updatedAt = p.updatedAt WHERE p.id = :postId AND p.commentCount > 0")
+    int decrementCommentCount(@Param("postId") Long postId);
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Post p")
+    long findMaxId();
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE posts p " +
+            "LEFT JOIN (SELECT post_id, COUNT(*) AS cnt FROM likes WHERE post_id BETWEEN :fromId AND :toId GROUP BY post_id) l ON l.post_id = p.id " +
+            "LEFT JOIN (SELECT post_id, COUNT(*) AS cnt FROM comments WHERE post_id BETWEEN :fromId AND :toId GROUP BY post_id) c ON c.post_id = p.id " +
+            "SET p.like_count = COALESCE(l.cnt, 0), p.comment_count = COALESCE(c.cnt, 0), p.updated_at = p.updated_at " +
+            "WHERE p.id BETWEEN :fromId AND :toId " +
+            "AND (p.like_count <> COALESCE(l.cnt, 0) OR p.comment_count <> COALESCE(c.cnt, 0))",
+            nativeQuery = true)
+    int reconcileCounters(@Param("fromId") long fromId, @Param("toId") long toId);
 }
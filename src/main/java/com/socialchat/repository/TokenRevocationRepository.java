@@ -8,13 +8,23 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
-    Optional<TokenRevocation> findByToken(String token);
+    Optional<TokenRevocation> findByTokenHash(String tokenHash);
     
-    boolean existsByToken(String token);
+    boolean existsByTokenHash(String tokenHash);
+
+    @Query("SELECT t.tokenHash, t.expiresAt FROM TokenRevocation t WHERE t.expiresAt > :now")
+    List<Object[]> findActiveRevocations(LocalDateTime now);
+
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM TokenRevocation t")
+    long findMaxId();
+
+    @Query("SELECT t.id, t.tokenHash, t.expiresAt FROM TokenRevocation t WHERE t.id > :watermark OR t.createdAt >= :since ORDER BY t.id")
+    List<Object[]> findRevocationsSince(long watermark, LocalDateTime since);
     
     @Modifying
     @Transactional
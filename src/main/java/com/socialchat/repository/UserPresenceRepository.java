@@ -7,6 +7,6 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface UserPresenceRepository extends JpaRepository<UserPresence, Long> {
+public interface UserPresenceRepository extends JpaRepository<UserPresence, Long>, UserPresenceRepositoryCustom {
     Optional<UserPresence> findByUserId(Long userId);
 }
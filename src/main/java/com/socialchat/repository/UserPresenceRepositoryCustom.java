@@ -0,0 +1,13 @@
+package com.socialchat.repository;
+
+import com.socialchat.dto.UserPresenceDto;
+
+import java.util.Collection;
+
+public interface UserPresenceRepositoryCustom {
+    /**
+     * Writes the online flag and last seen time of each user with multi-row upserts, inserting missing
+     * rows. Returns the affected row count as reported by MySQL (2 for an updated row).
+     */
+    int upsertAll(Collection<UserPresenceDto> presences);
+}
@@ -0,0 +1,42 @@
+package com.socialchat.repository;
+
+import com.socialchat.dto.UserPresenceDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserPresenceRepositoryImpl implements UserPresenceRepositoryCustom {
+    // updated_at is written explicitly: only MySQL fills it from the column default and ON UPDATE clause
+    private static final String UPSERT_PREFIX = "INSERT INTO user_presence (user_id, is_online, last_seen, updated_at) VALUES ";
+    private static final String UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE is_online = VALUES(is_online),"
+            + " last_seen = VALUES(last_seen), updated_at = VALUES(updated_at)";
+
+    // One statement per chunk: a JDBC batch is still one round trip per row unless the driver rewrites it
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertAll(Collection<UserPresenceDto> presences) {
+        List<UserPresenceDto> rows = List.copyOf(presences);
+        int affected = 0;
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<UserPresenceDto> chunk = rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size()));
+            Object[] args = new Object[chunk.size() * 3];
+            for (int i = 0; i < chunk.size(); i++) {
+                UserPresenceDto presence = chunk.get(i);
+                args[i * 3] = presence.getUserId();
+                args[i * 3 + 1] = presence.isOnline();
+                args[i * 3 + 2] = Timestamp.valueOf(presence.getLastSeen());
+            }
+            String values = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, CURRENT_TIMESTAMP)"));
+            affected += jdbcTemplate.update(UPSERT_PREFIX + values + UPSERT_SUFFIX, args);
+        }
+        return affected;
+    }
+}
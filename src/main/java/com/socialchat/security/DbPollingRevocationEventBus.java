@@ -0,0 +1,75 @@
+package com.socialchat.security;
+
+import com.socialchat.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node bus that tails token_revocations by id watermark.
+ *
+ * Local publishes are delivered immediately; revocations written by other nodes are picked up on the
+ * next poll, so a logout is visible cluster-wide within token.revocation.poll-interval. Because
+ * AUTO_INCREMENT ids can commit out of order, each poll also re-reads rows created within the
+ * lookback window; redelivery is harmless since the filter is idempotent.
+ */
+@Component
+@ConditionalOnProperty(name = "token.revocation.bus", havingValue = "db-polling")
+@RequiredArgsConstructor
+@Slf4j
+public class DbPollingRevocationEventBus implements RevocationEventBus {
+    private final TokenRevocationRepository tokenRevocationRepository;
+
+    private final List<Consumer<RevocationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Value("${token.revocation.poll-lookback-seconds:30}")
+    private long lookbackSeconds;
+
+    private volatile long watermark;
+
+    @PostConstruct
+    void init() {
+        // Rows up to here are loaded by the revocation filter itself at startup
+        watermark = tokenRevocationRepository.findMaxId();
+    }
+
+    @Override
+    public void publish(RevocationEvent event) {
+        deliver(event);
+    }
+
+    @Override
+    public void subscribe(Consumer<RevocationEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${token.revocation.poll-interval:2000}")
+    public void poll() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusSeconds(lookbackSeconds);
+            List<Object[]> rows = tokenRevocationRepository.findRevocationsSince(watermark, since);
+
+            long maxSeen = watermark;
+            for (Object[] row : rows) {
+                maxSeen = Math.max(maxSeen, (Long) row[0]);
+                deliver(new RevocationEvent((String) row[1], (LocalDateTime) row[2]));
+            }
+            watermark = maxSeen;
+        } catch (Exception e) {
+            log.error("Error polling token revocations", e);
+        }
+    }
+
+    private void deliver(RevocationEvent event) {
+        listeners.forEach(listener -> listener.accept(event));
+    }
+}
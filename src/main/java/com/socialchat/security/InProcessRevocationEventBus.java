@@ -0,0 +1,27 @@
+package com.socialchat.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-node bus: events are delivered synchronously to local subscribers only.
+ */
+@Component
+@ConditionalOnProperty(name = "token.revocation.bus", havingValue = "in-process", matchIfMissing = true)
+public class InProcessRevocationEventBus implements RevocationEventBus {
+    private final List<Consumer<RevocationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RevocationEvent event) {
+        listeners.forEach(listener -> listener.accept(event));
+    }
+
+    @Override
+    public void subscribe(Consumer<RevocationEvent> listener) {
+        listeners.add(listener);
+    }
+}
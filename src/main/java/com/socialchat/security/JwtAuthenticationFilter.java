@@ -32,7 +32,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt)) {
-                if (!tokenProvider.validateToken(jwt)) {
+                JwtPrincipal principal = tokenProvider.verifyOnce(jwt);
+                if (principal == null) {
                     log.warn("Invalid JWT token provided");
                     sendErrorResponse(response, HttpStatus.UNAUTHORIZED, "Invalid or expired token", request);
                     return;
@@ -44,11 +45,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     return;
                 }
 
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
-                String username = tokenProvider.getUsernameFromToken(jwt);
-
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userId, null, null);
+                        new UsernamePasswordAuthenticationToken(principal.userId(), null, null);
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -0,0 +1,12 @@
+package com.socialchat.security;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token whose signature and expiry have been verified.
+ */
+public record JwtPrincipal(Long userId, String username, String type, Instant expiresAt) {
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
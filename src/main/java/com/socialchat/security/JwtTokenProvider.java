@@ -6,16 +6,25 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.socialchat.entity.TokenRevocation;
+import com.socialchat.entity.User;
 import com.socialchat.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 @Component
 @Slf4j
@@ -29,11 +38,32 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration}")
     private long refreshTokenExpirationMs;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
     @Autowired
     private TokenRevocationRepository tokenRevocationRepository;
 
-    private Algorithm getAlgorithm() {
-        return Algorithm.HMAC512(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    @Autowired
+    private TokenRevocationCache tokenRevocationCache;
+
+    @Autowired
+    private RevocationEventBus revocationEventBus;
+
+    private Algorithm algorithm;
+
+    private JWTVerifier verifier;
+
+    // SHA-256 of the raw token -> verified claims, valid until the token's own expiry
+    private final Map<String, JwtPrincipal> verifiedTokens = new ConcurrentHashMap<>();
+
+    // The same entries ordered by expiry, so a full cache evicts the token that expires first
+    private final NavigableSet<ExpiryKey> verifiedByExpiry = new ConcurrentSkipListSet<>();
+
+    @PostConstruct
+    void init() {
+        algorithm = Algorithm.HMAC512(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        verifier = JWT.require(algorithm).build();
     }
 
     public String generateAccessToken(Long userId, String username) {
@@ -43,7 +73,7 @@ public class JwtTokenProvider {
                 .withClaim("type", "access")
                 .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .sign(getAlgorithm());
+                .sign(algorithm);
     }
 
     public String generateRefreshToken(Long userId, String username) {
@@ -53,83 +83,128 @@ public class JwtTokenProvider {
                 .withClaim("type", "refresh")
                 .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + refreshTokenExpirationMs))
-                .sign(getAlgorithm());
+                .sign(algorithm);
     }
 
-    public Long getUserIdFromToken(String token) {
-        try {
-            DecodedJWT decodedJWT = JWT.require(getAlgorithm()).build().verify(token);
-            return decodedJWT.getClaim("userId").asLong();
-        } catch (JWTVerificationException e) {
-            log.error("Failed to get userId from token: {}", e.getMessage());
+    /**
+     * Verifies the token signature and expiry once and returns its claims, or null if the token is invalid.
+     * Repeated calls with the same token are answered from a bounded cache until the token expires.
+     */
+    public JwtPrincipal verifyOnce(String token) {
+        Instant now = Instant.now();
+        String digest = hashToken(token);
+
+        JwtPrincipal cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            if (verifiedTokens.remove(digest, cached)) {
+                verifiedByExpiry.remove(new ExpiryKey(cached.expiresAt(), digest));
+            }
+            log.error("JWT validation failed: token has expired");
             return null;
         }
-    }
 
-    public String getUsernameFromToken(String token) {
         try {
-            DecodedJWT decodedJWT = JWT.require(getAlgorithm()).build().verify(token);
-            return decodedJWT.getSubject();
+            DecodedJWT decodedJWT = verifier.verify(token);
+            JwtPrincipal principal = new JwtPrincipal(
+                    decodedJWT.getClaim("userId").asLong(),
+                    decodedJWT.getSubject(),
+                    decodedJWT.getClaim("type").asString(),
+                    decodedJWT.getExpiresAtAsInstant());
+            cacheVerified(digest, principal);
+            return principal;
         } catch (JWTVerificationException e) {
-            log.error("Failed to get username from token: {}", e.getMessage());
+            log.error("JWT validation failed: {}", e.getMessage());
             return null;
         }
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Adds the token and, past the size cap, evicts the entries closest to expiry. Those are the expired
+     * ones first, and otherwise the ones that had the least time left to save a verification.
+     */
+    private void cacheVerified(String digest, JwtPrincipal principal) {
+        if (verifiedTokens.putIfAbsent(digest, principal) != null) {
+            return;
+        }
+        verifiedByExpiry.add(new ExpiryKey(principal.expiresAt(), digest));
+        while (verifiedTokens.size() > verifiedCacheMaxSize) {
+            ExpiryKey oldest = verifiedByExpiry.pollFirst();
+            if (oldest == null) {
+                break;
+            }
+            verifiedTokens.remove(oldest.digest());
+        }
+    }
+
+    /**
+     * Fixed-size hex SHA-256 of a raw token, used as the key for token lookups.
+     */
+    public static String hashToken(String token) {
         try {
-            JWT.require(getAlgorithm()).build().verify(token);
-            return true;
-        } catch (JWTVerificationException e) {
-            log.error("JWT validation failed: {}", e.getMessage());
-            return false;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
+    public Long getUserIdFromToken(String token) {
+        JwtPrincipal principal = verifyOnce(token);
+        return principal != null ? principal.userId() : null;
+    }
+
+    public String getUsernameFromToken(String token) {
+        JwtPrincipal principal = verifyOnce(token);
+        return principal != null ? principal.username() : null;
+    }
+
+    public boolean validateToken(String token) {
+        return verifyOnce(token) != null;
+    }
+
     public void revokeToken(String token) {
-        try {
-            DecodedJWT decodedJWT = JWT.require(getAlgorithm()).build().verify(token);
-            LocalDateTime expiresAt = decodedJWT.getExpiresAtAsInstant()
-                    .atZone(java.time.ZoneId.systemDefault())
-                    .toLocalDateTime();
-
-            TokenRevocation revocation = TokenRevocation.builder()
-                    .token(token)
-                    .expiresAt(expiresAt)
-                    .build();
-
-            tokenRevocationRepository.save(revocation);
-            log.info("Token revoked successfully");
-        } catch (JWTVerificationException e) {
-            log.error("Failed to revoke token: {}", e.getMessage());
-            throw new RuntimeException("Failed to revoke token", e);
+        JwtPrincipal principal = verifyOnce(token);
+        if (principal == null) {
+            throw new RuntimeException("Failed to revoke token");
         }
+
+        LocalDateTime expiresAt = principal.expiresAt()
+                .atZone(java.time.ZoneId.systemDefault())
+                .toLocalDateTime();
+
+        String tokenHash = hashToken(token);
+        TokenRevocation revocation = TokenRevocation.builder()
+                .tokenHash(tokenHash)
+                .user(User.builder().id(principal.userId()).build())
+                .expiresAt(expiresAt)
+                .build();
+
+        tokenRevocationRepository.save(revocation);
+        revocationEventBus.publish(new RevocationEvent(tokenHash, expiresAt));
+        log.info("Token revoked successfully");
     }
 
     public boolean isTokenRevoked(String token) {
-        if (tokenRevocationRepository == null) {
-            log.warn("TokenRevocationRepository is not initialized");
-            return false;
-        }
-        try {
-            return tokenRevocationRepository.existsByToken(token);
-        } catch (Exception e) {
-            log.error("Error checking token revocation status: {}", e.getMessage());
-            return false;
-        }
+        return tokenRevocationCache.isRevoked(hashToken(token));
     }
 
     public boolean isTokenExpired(String token) {
-        try {
-            DecodedJWT decodedJWT = JWT.require(getAlgorithm()).build().verify(token);
-            return decodedJWT.getExpiresAtAsInstant().isBefore(Instant.now());
-        } catch (JWTVerificationException e) {
-            log.error("Token is expired or invalid: {}", e.getMessage());
-            return true;
-        }
+        JwtPrincipal principal = verifyOnce(token);
+        return principal == null || principal.isExpired(Instant.now());
     }
 
     public long getExpirationTime() {
         return jwtExpirationMs;
     }
+
+    private record ExpiryKey(Instant expiresAt, String digest) implements Comparable<ExpiryKey> {
+        @Override
+        public int compareTo(ExpiryKey other) {
+            int byExpiry = expiresAt.compareTo(other.expiresAt);
+            return byExpiry != 0 ? byExpiry : digest.compareTo(other.digest);
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package com.socialchat.security;
+
+import java.time.LocalDateTime;
+
+/**
+ * A token revocation as seen by every node: the token's SHA-256 hash and when the token expires.
+ */
+public record RevocationEvent(String tokenHash, LocalDateTime expiresAt) {
+}
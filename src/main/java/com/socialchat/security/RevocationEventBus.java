@@ -0,0 +1,15 @@
+package com.socialchat.security;
+
+import java.util.function.Consumer;
+
+/**
+ * Propagates token revocations to the in-memory revocation filter of every node.
+ *
+ * Publishers write the token_revocations row first and then publish; the active implementation is
+ * selected with token.revocation.bus (in-process or db-polling).
+ */
+public interface RevocationEventBus {
+    void publish(RevocationEvent event);
+
+    void subscribe(Consumer<RevocationEvent> listener);
+}
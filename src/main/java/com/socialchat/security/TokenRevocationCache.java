@@ -0,0 +1,72 @@
+package com.socialchat.security;
+
+import com.socialchat.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory filter in front of the token_revocations table.
+ *
+ * Each revoked token is held as a 64-bit fingerprint (the leading bytes of its SHA-256 hash) mapped to
+ * its expiry. Revocations from this and other nodes arrive through the RevocationEventBus. A token
+ * that misses the filter is definitely not revoked, so the hot path never touches the database; only
+ * a fingerprint hit is confirmed against token_hash. Entries are dropped once the token expires,
+ * since an expired token is rejected by signature verification anyway.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationCache {
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final RevocationEventBus revocationEventBus;
+
+    private final Map<Long, Long> expiryByFingerprint = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        revocationEventBus.subscribe(event -> add(event.tokenHash(), event.expiresAt()));
+
+        List<Object[]> active = tokenRevocationRepository.findActiveRevocations(LocalDateTime.now());
+        for (Object[] row : active) {
+            add((String) row[0], (LocalDateTime) row[1]);
+        }
+        log.info("Loaded {} active token revocations", active.size());
+    }
+
+    public void add(String tokenHash, LocalDateTime expiresAt) {
+        long expiresAtMs = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        expiryByFingerprint.merge(fingerprint(tokenHash), expiresAtMs, Math::max);
+    }
+
+    public boolean isRevoked(String tokenHash) {
+        Long expiresAtMs = expiryByFingerprint.get(fingerprint(tokenHash));
+        if (expiresAtMs == null || expiresAtMs < System.currentTimeMillis()) {
+            return false;
+        }
+        try {
+            return tokenRevocationRepository.existsByTokenHash(tokenHash);
+        } catch (Exception e) {
+            log.error("Error confirming token revocation, treating as revoked: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    public int pruneExpired() {
+        long now = System.currentTimeMillis();
+        int before = expiryByFingerprint.size();
+        expiryByFingerprint.values().removeIf(expiresAtMs -> expiresAtMs < now);
+        return before - expiryByFingerprint.size();
+    }
+
+    private static long fingerprint(String tokenHash) {
+        return Long.parseUnsignedLong(tokenHash.substring(0, 16), 16);
+    }
+}
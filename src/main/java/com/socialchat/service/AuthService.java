@@ -8,7 +8,10 @@ import com.socialchat.entity.TokenRevocation;
 import com.socialchat.entity.User;
 import com.socialchat.repository.TokenRevocationRepository;
 import com.socialchat.repository.UserRepository;
+import com.socialchat.security.JwtPrincipal;
 import com.socialchat.security.JwtTokenProvider;
+import com.socialchat.security.RevocationEvent;
+import com.socialchat.security.RevocationEventBus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -16,6 +19,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Optional;
 
 @Service
@@ -33,6 +37,9 @@ public class AuthService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private RevocationEventBus revocationEventBus;
+
     @Transactional
     public AuthResponse register(RegisterRequest request) {
         // Check if user already exists
@@ -111,14 +118,12 @@ public class AuthService {
     public AuthResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
 
-        if (!jwtTokenProvider.validateToken(refreshToken)) {
+        JwtPrincipal principal = jwtTokenProvider.verifyOnce(refreshToken);
+        if (principal == null) {
             throw new IllegalArgumentException("Invalid or expired refresh token");
         }
 
-        Long userId = jwtTokenProvider.getUserIdFromToken(refreshToken);
-        String username = jwtTokenProvider.getUsernameFromToken(refreshToken);
-
-        User user = userRepository.findByIdAndIsDeletedFalse(userId)
+        User user = userRepository.findByIdAndIsDeletedFalse(principal.userId())
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         // Generate new access token
@@ -137,22 +142,25 @@ public class AuthService {
 
     @Transactional
     public void logout(String token, Long userId) {
-        if (!jwtTokenProvider.validateToken(token)) {
+        JwtPrincipal principal = jwtTokenProvider.verifyOnce(token);
+        if (principal == null) {
             throw new IllegalArgumentException("Invalid token");
         }
 
         User user = userRepository.findByIdAndIsDeletedFalse(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        // Calculate expiration time
-        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(jwtTokenProvider.getExpirationTime() / 1000);
+        // The revocation only needs to outlive the token itself
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(principal.expiresAt(), ZoneId.systemDefault());
+        String tokenHash = JwtTokenProvider.hashToken(token);
 
         TokenRevocation revocation = TokenRevocation.builder()
-                .token(token)
+                .tokenHash(tokenHash)
                 .user(user)
                 .expiresAt(expiresAt)
                 .build();
 
         tokenRevocationRepository.save(revocation);
+        revocationEventBus.publish(new RevocationEvent(tokenHash, expiresAt));
     }
 }
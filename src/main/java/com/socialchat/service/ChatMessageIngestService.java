@@ -0,0 +1,218 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.MessageDto;
+import com.socialchat.dto.WebSocketMessageDto;
+import com.socialchat.entity.Conversation;
+import com.socialchat.entity.Message;
+import com.socialchat.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages sent over STOMP.
+ *
+ * The frame handler enqueues a message and acknowledges/broadcasts it straight away; a single writer
+ * thread drains the bounded queue into micro-batches of up to chat.ingest.batch-size messages,
+ * waiting at most chat.ingest.flush-interval for a batch to fill, and stores each batch with one
+ * multi-row insert. When the queue is full, enqueue waits up to chat.ingest.offer-timeout and then
+ * rejects the message so the client retries instead of the server buffering without limit.
+ *
+ * Delivery to the database is at-least-once: a failed batch is retried, and the client message id
+ * makes the retry idempotent. While the database is unreachable a batch is retried until it succeeds.
+ * A batch that keeps failing on its own data is retried chat.ingest.max-attempts times and then split
+ * in half, so the good messages are stored and the bad one is isolated; a single message that still
+ * fails is written to the dead-letter log and its conversation is told it was rejected. Once a batch
+ * commits, each conversation is told the ids and sequence numbers of its new messages so clients can
+ * track the seq they will resume from, and the messages are appended to the RecentMessageCache.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatMessageIngestService {
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    // Messages that could not be stored, one line each, for replay or inspection
+    private static final Logger DEAD_LETTERS = LoggerFactory.getLogger("com.socialchat.ingest.dead-letter");
+
+    private final MessageBatchWriter messageBatchWriter;
+    private final WebSocketEventService eventService;
+    private final RecentMessageCache recentMessageCache;
+    private final UserProfileCache userProfileCache;
+
+    @Value("${chat.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.ingest.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chat.ingest.flush-interval:50}")
+    private long flushIntervalMs;
+
+    @Value("${chat.ingest.offer-timeout:100}")
+    private long offerTimeoutMs;
+
+    @Value("${chat.ingest.max-attempts:5}")
+    private int maxAttempts;
+
+    private BlockingQueue<Message> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::runWriter, "chat-message-writer");
+        writer.start();
+    }
+
+    /**
+     * Queues the message for persistence. Returns false if the queue stayed full for the offer timeout.
+     */
+    public boolean enqueue(WebSocketMessageDto dto) throws InterruptedException {
+        Conversation conversation = new Conversation();
+        conversation.setId(dto.getConversationId());
+
+        Message message = Message.builder()
+                .conversation(conversation)
+                .sender(User.builder().id(dto.getSenderId()).build())
+                .text(dto.getContent())
+                .clientMessageId(dto.getClientMessageId())
+                .createdAt(dto.getCreatedAt())
+                .build();
+
+        return running && queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            try {
+                List<Message> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    writeWithRetry(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private List<Message> nextBatch() throws InterruptedException {
+        List<Message> batch = new ArrayList<>(batchSize);
+        Message first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void writeWithRetry(List<Message> batch) throws InterruptedException {
+        long backoffMs = flushIntervalMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Message> stored = messageBatchWriter.writeBatch(batch);
+                log.debug("Persisted {} of {} queued messages", stored.size(), batch.size());
+                eventService.broadcastMessageCommits(stored);
+                cacheRecent(stored);
+                return;
+            } catch (Exception e) {
+                if (!running && attempt >= SHUTDOWN_ATTEMPTS) {
+                    log.error("Giving up on {} queued messages during shutdown", batch.size(), e);
+                    return;
+                }
+                if (attempt >= maxAttempts && !isTransient(e)) {
+                    splitOrDeadLetter(batch, e);
+                    return;
+                }
+                log.error("Error persisting {} queued messages (attempt {}), retrying", batch.size(), attempt, e);
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void splitOrDeadLetter(List<Message> batch, Exception cause) throws InterruptedException {
+        if (batch.size() > 1) {
+            log.warn("{} queued messages failed {} times, retrying them in halves", batch.size(), maxAttempts);
+            int half = batch.size() / 2;
+            writeWithRetry(batch.subList(0, half));
+            writeWithRetry(batch.subList(half, batch.size()));
+            return;
+        }
+
+        Message message = batch.get(0);
+        DEAD_LETTERS.error("conversationId={} senderId={} clientMessageId={} createdAt={} text={}",
+                message.getConversation().getId(), message.getSender().getId(), message.getClientMessageId(),
+                message.getCreatedAt(), message.getText());
+        log.error("Dead-lettered message {} of conversation {} after {} attempts", message.getClientMessageId(),
+                message.getConversation().getId(), maxAttempts, cause);
+        eventService.broadcastMessageRejections(batch);
+    }
+
+    // Failures that say nothing about the messages themselves, so splitting the batch would not help
+    private static boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void cacheRecent(List<Message> stored) {
+        for (Message message : stored) {
+            UserSnapshot sender = userProfileCache.get(message.getSender().getId());
+            recentMessageCache.append(message.getConversation().getId(), MessageDto.builder()
+                    .id(message.getId())
+                    .seq(message.getSeq())
+                    .senderId(message.getSender().getId())
+                    .senderUsername(sender != null ? sender.username() : null)
+                    .senderPhotoUrl(sender != null ? sender.profilePhotoUrl() : null)
+                    .content(message.getText())
+                    .createdAt(message.getCreatedAt())
+                    .build());
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.error("{} queued messages were not persisted before shutdown", queue.size());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.Conversation;
+import com.socialchat.repository.ConversationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of conversation id -> (user1 id, user2 id), used to authorize chat reads, writes and
+ * topic subscriptions.
+ *
+ * Participants of a direct conversation never change, so an entry stays valid until the conversation is
+ * deleted. Entries live in one flat long[] (three longs per slot, no boxing) indexed by a hash of the
+ * conversation id; a slot holds one conversation and a colliding load simply replaces it, which keeps
+ * the cache at chat.membership-cache.max-size slots. Slots are guarded by striped locks so a reader
+ * never sees a half-written pair. Misses load the pair with one primary-key lookup.
+ *
+ * A group takes a slot marked GROUP; its member ids are kept as a sorted long[] in a separate map of at
+ * most chat.membership-cache.max-groups lists, so a check is a binary search whatever the group size.
+ * A user missing from a cached list is confirmed with a primary-key lookup before being rejected, and
+ * the list is reloaded if they turn out to be a member, which picks up members added on another node.
+ *
+ * Membership changes and deletions arrive through the MembershipEventBus, from this node on commit and
+ * from other nodes within the bus's poll interval, and evict the conversation. Every eviction bumps its
+ * stripe's stamp; a load stores its result only if the stamp is unchanged since before its query, so a
+ * load that read the old rows cannot put them back after the eviction. The ingest writer checks
+ * membership against the database, so a message accepted on a node that had not yet seen a change is
+ * still dropped.
+ */
+@Component
+public class ConversationMembershipCache {
+    private static final int STRIPES = 64;
+    private static final long EMPTY = 0L;
+    private static final long GROUP = -1L;
+
+    private final ConversationRepository conversationRepository;
+    private final int maxGroups;
+    private final Counter hits;
+    private final Counter misses;
+
+    // slot i: entries[3i] = conversation id (EMPTY if unused), entries[3i + 1] = user1 id (GROUP for groups), entries[3i + 2] = user2 id
+    private final long[] entries;
+    private final int mask;
+    private final Object[] locks = new Object[STRIPES];
+    // eviction count per stripe, guarded by that stripe's lock
+    private final long[] evictionStamps = new long[STRIPES];
+
+    // group conversation id -> member ids, ascending
+    private final Map<Long, long[]> groupMembers = new ConcurrentHashMap<>();
+
+    public ConversationMembershipCache(ConversationRepository conversationRepository,
+                                       MembershipEventBus membershipEventBus,
+                                       @Value("${chat.membership-cache.max-size:65536}") int maxSize,
+                                       @Value("${chat.membership-cache.max-groups:4096}") int maxGroups,
+                                       MeterRegistry meterRegistry) {
+        this.conversationRepository = conversationRepository;
+        this.maxGroups = maxGroups;
+        int capacity = Integer.highestOneBit(Math.max(maxSize, 2) - 1) << 1;
+        this.entries = new long[capacity * 3];
+        this.mask = capacity - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.hits = meterRegistry.counter("chat.membership.cache", "result", "hit");
+        this.misses = meterRegistry.counter("chat.membership.cache", "result", "miss");
+        membershipEventBus.subscribe(event -> evict(event.conversationId()));
+    }
+
+    /**
+     * Returns whether the user is one of the conversation's participants or group members; false if the
+     * conversation does not exist.
+     */
+    public boolean isParticipant(long conversationId, long userId) {
+        int slot = slot(conversationId);
+        boolean group = false;
+        synchronized (lock(slot)) {
+            int base = slot * 3;
+            if (entries[base] == conversationId) {
+                hits.increment();
+                if (entries[base + 1] != GROUP) {
+                    return entries[base + 1] == userId || entries[base + 2] == userId;
+                }
+                group = true;
+            }
+        }
+        // A group whose slot was taken by a colliding conversation still has its member list
+        if (group || groupMembers.containsKey(conversationId)) {
+            return isMember(conversationId, userId);
+        }
+
+        misses.increment();
+        Object[] row = load(conversationId);
+        if (row == null) {
+            return false;
+        }
+        if (row[6] == Conversation.ConversationType.GROUP) {
+            return isMember(conversationId, userId);
+        }
+        long user1Id = (Long) row[1];
+        long user2Id = (Long) row[2];
+        return user1Id == userId || user2Id == userId;
+    }
+
+    /**
+     * Returns whether the conversation is a group; false if it does not exist. Callers check
+     * participation first, so the slot is normally already loaded.
+     */
+    public boolean isGroup(long conversationId) {
+        int slot = slot(conversationId);
+        synchronized (lock(slot)) {
+            int base = slot * 3;
+            if (entries[base] == conversationId) {
+                return entries[base + 1] == GROUP;
+            }
+        }
+        if (groupMembers.containsKey(conversationId)) {
+            return true;
+        }
+        Object[] row = load(conversationId);
+        return row != null && row[6] == Conversation.ConversationType.GROUP;
+    }
+
+    // Loads the conversation's participants row into its slot; null if the conversation does not exist
+    private Object[] load(long conversationId) {
+        int slot = slot(conversationId);
+        long stamp = stamp(slot);
+        List<Object[]> rows = conversationRepository.findParticipantsByIdIn(List.of(conversationId));
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        boolean group = row[6] == Conversation.ConversationType.GROUP;
+        synchronized (lock(slot)) {
+            if (evictionStamps[slot & (STRIPES - 1)] == stamp) {
+                write(slot, conversationId, group ? GROUP : (Long) row[1], group ? EMPTY : (Long) row[2]);
+            }
+        }
+        return row;
+    }
+
+    public void put(long conversationId, long user1Id, long user2Id) {
+        int slot = slot(conversationId);
+        synchronized (lock(slot)) {
+            write(slot, conversationId, user1Id, user2Id);
+        }
+    }
+
+    public void evict(long conversationId) {
+        int slot = slot(conversationId);
+        synchronized (lock(slot)) {
+            int base = slot * 3;
+            if (entries[base] == conversationId) {
+                entries[base] = EMPTY;
+            }
+            evictionStamps[slot & (STRIPES - 1)]++;
+            groupMembers.remove(conversationId);
+        }
+    }
+
+    private boolean isMember(long conversationId, long userId) {
+        long[] members = groupMembers.get(conversationId);
+        boolean fresh = members == null;
+        if (fresh) {
+            members = loadMembers(conversationId);
+        }
+        if (Arrays.binarySearch(members, userId) >= 0) {
+            return true;
+        }
+        if (fresh || conversationRepository.countMembership(conversationId, userId) == 0) {
+            return false;
+        }
+        loadMembers(conversationId);
+        return true;
+    }
+
+    private long[] loadMembers(long conversationId) {
+        int slot = slot(conversationId);
+        long stamp = stamp(slot);
+        long[] members = conversationRepository.findMemberIds(conversationId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        if (groupMembers.size() >= maxGroups) {
+            Iterator<Long> victim = groupMembers.keySet().iterator();
+            if (victim.hasNext()) {
+                victim.next();
+                victim.remove();
+            }
+        }
+        synchronized (lock(slot)) {
+            if (evictionStamps[slot & (STRIPES - 1)] == stamp) {
+                groupMembers.put(conversationId, members);
+            }
+        }
+        return members;
+    }
+
+    private long stamp(int slot) {
+        synchronized (lock(slot)) {
+            return evictionStamps[slot & (STRIPES - 1)];
+        }
+    }
+
+    // Caller holds the slot's lock
+    private void write(int slot, long conversationId, long user1Id, long user2Id) {
+        int base = slot * 3;
+        entries[base] = conversationId;
+        entries[base + 1] = user1Id;
+        entries[base + 2] = user2Id;
+    }
+
+    private int slot(long conversationId) {
+        long hash = conversationId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private Object lock(int slot) {
+        return locks[slot & (STRIPES - 1)];
+    }
+}
@@ -1,28 +1,41 @@
 package com.socialchat.service;
 
+import com.socialchat.dto.AddMembersRequest;
 import com.socialchat.dto.ConversationDto;
+import com.socialchat.dto.ConversationSyncDto;
+import com.socialchat.dto.CreateGroupRequest;
 import com.socialchat.dto.MessageDto;
-import com.socialchat.dto.PageResponse;
+import com.socialchat.dto.PageCursor;
 import com.socialchat.dto.SendMessageRequest;
+import com.socialchat.dto.SliceResponse;
 import com.socialchat.entity.Conversation;
 import com.socialchat.entity.Message;
 import com.socialchat.entity.User;
 import com.socialchat.mapper.ConversationMapper;
+import com.socialchat.mapper.PostMapper;
 import com.socialchat.repository.ConversationRepository;
 import com.socialchat.repository.MessageRepository;
 import com.socialchat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,58 +45,113 @@ public class ConversationService {
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final WebSocketEventService eventService;
+    private final ConversationMembershipCache conversationMembershipCache;
+    private final RecentMessageCache recentMessageCache;
+    private final MembershipEventBus membershipEventBus;
+
+    private static final int PREVIEW_LENGTH = 255;
+    private static final LocalDateTime INBOX_START = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Value("${chat.sync.max-conversations:200}")
+    private int maxSyncConversations;
+
+    @Value("${chat.sync.page-size:200}")
+    private int syncPageSize;
+
+    @Value("${chat.group.max-members:500}")
+    private int maxGroupMembers;
 
     public ConversationDto getOrCreateConversation(Long currentUserId, Long participantId) {
         if (currentUserId.equals(participantId)) {
             throw new IllegalArgumentException("Cannot create conversation with yourself");
         }
 
-        User currentUser = userRepository.findById(currentUserId)
-                .orElseThrow(() -> new RuntimeException("Current user not found"));
-        User participant = userRepository.findById(participantId)
-                .orElseThrow(() -> new RuntimeException("Participant user not found"));
-
-        // Check if conversation already exists
-        Optional<Conversation> existingConversation = conversationRepository
-                .findByParticipants(currentUserId, participantId);
+        if (!userRepository.existsById(currentUserId)) {
+            throw new RuntimeException("Current user not found");
+        }
+        if (!userRepository.existsById(participantId)) {
+            throw new RuntimeException("Participant user not found");
+        }
 
-        Conversation conversation = existingConversation.orElseGet(() -> {
-            Conversation newConversation = new Conversation();
-            newConversation.setUser1(currentUser);
-            newConversation.setUser2(participant);
-            newConversation.setCreatedAt(LocalDateTime.now());
-            return conversationRepository.save(newConversation);
+        Long user1Id = Math.min(currentUserId, participantId);
+        Long user2Id = Math.max(currentUserId, participantId);
+        Conversation conversation = conversationRepository.findByParticipants(user1Id, user2Id).orElseGet(() -> {
+            // A concurrent request may insert the pair first; unique_participants makes ours a no-op
+            conversationRepository.insertIfAbsent(user1Id, user2Id);
+            return conversationRepository.findByParticipantsForShare(user1Id, user2Id)
+                    .orElseThrow(() -> new IllegalStateException("Conversation could not be created"));
         });
+        conversationMembershipCache.put(conversation.getId(), user1Id, user2Id);
 
-        return ConversationMapper.mapToDto(conversation, currentUserId, messageRepository, userRepository);
+        return ConversationMapper.mapToDto(conversation, currentUserId);
     }
 
-    public PageResponse<ConversationDto> getUserConversations(Long userId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("updatedAt").descending());
-        Page<Conversation> conversations = conversationRepository.findUserConversations(userId, pageable);
+    public ConversationDto createGroup(Long creatorId, CreateGroupRequest request) {
+        Set<Long> memberIds = new TreeSet<>(request.getMemberIds());
+        memberIds.add(creatorId);
+        if (memberIds.size() < 2) {
+            throw new IllegalArgumentException("A group needs at least one other member");
+        }
+        if (memberIds.size() > maxGroupMembers) {
+            throw new IllegalArgumentException("A group can have at most " + maxGroupMembers + " members");
+        }
 
-        List<ConversationDto> dtos = conversations.getContent().stream()
-                .map(conv -> ConversationMapper.mapToDto(conv, userId, messageRepository, userRepository))
-                .toList();
+        Conversation conversation = new Conversation();
+        conversation.setType(Conversation.ConversationType.GROUP);
+        conversation.setTitle(request.getTitle().trim());
+        conversation = conversationRepository.save(conversation);
+        if (conversationRepository.insertMembers(conversation.getId(), memberIds) < memberIds.size()) {
+            throw new IllegalArgumentException("Member user not found");
+        }
 
-        return PageResponse.<ConversationDto>builder()
-                .content(dtos)
-                .pageNumber(page)
-                .pageSize(size)
-                .totalElements(conversations.getTotalElements())
-                .totalPages(conversations.getTotalPages())
-                .hasNext(conversations.hasNext())
-                .hasPrevious(conversations.hasPrevious())
-                .build();
+        ConversationDto dto = ConversationMapper.mapGroupToDto(conversation, 0);
+        afterCommit(() -> eventService.notifyMembersAdded(memberIds, dto));
+        return dto;
     }
 
-    public MessageDto sendMessage(Long senderId, Long conversationId, SendMessageRequest request) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+    public void addMembers(Long userId, Long conversationId, AddMembersRequest request) {
+        requireParticipant(conversationId, userId);
+        // Locked before counting: two concurrent additions could otherwise both pass the size check
+        Conversation conversation = requireGroup(conversationRepository.findByIdForUpdate(conversationId));
 
-        if (!conversation.getUser1().getId().equals(senderId) && !conversation.getUser2().getId().equals(senderId)) {
-            throw new IllegalArgumentException("User is not part of this conversation");
+        List<Long> currentIds = conversationRepository.findMemberIds(conversationId);
+        Set<Long> addedIds = new TreeSet<>(request.getMemberIds());
+        addedIds.removeAll(currentIds);
+        if (addedIds.isEmpty()) {
+            return;
+        }
+        if (currentIds.size() + addedIds.size() > maxGroupMembers) {
+            throw new IllegalArgumentException("A group can have at most " + maxGroupMembers + " members");
         }
+        if (conversationRepository.insertMembers(conversationId, addedIds) < addedIds.size()) {
+            throw new IllegalArgumentException("Member user not found");
+        }
+
+        ConversationDto dto = ConversationMapper.mapGroupToDto(conversation, 0);
+        // Evicted on commit so a concurrent check cannot cache the list without the new members
+        membershipEventBus.publish(new MembershipEvent(conversationId, null));
+        afterCommit(() -> eventService.notifyMembersAdded(addedIds, dto));
+    }
+
+    public SliceResponse<ConversationDto> getUserConversations(Long userId, String before, int size, boolean includeTotal) {
+        PageCursor cursor = PageCursor.decode(before);
+        // The first slice starts from a cursor above any stored (updated_at, id)
+        LocalDateTime updatedAt = cursor != null ? cursor.getCreatedAt() : INBOX_START;
+        Long id = cursor != null ? cursor.getId() : Long.MAX_VALUE;
+
+        List<ConversationDto> rows = conversationRepository.findInboxSliceBefore(userId, updatedAt, id, size + 1).stream()
+                .map(ConversationMapper::mapInboxRowToDto)
+                .toList();
+        Long total = includeTotal ? conversationRepository.countUserConversations(userId) : null;
+
+        return PostMapper.convertSliceToResponse(rows, size, conv -> new PageCursor(conv.getUpdatedAt(), conv.getId()),
+                Function.identity(), total);
+    }
+
+    public MessageDto sendMessage(Long senderId, Long conversationId, SendMessageRequest request) {
+        requireParticipant(conversationId, senderId);
+        Conversation conversation = conversationRepository.getReferenceById(conversationId);
 
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -93,57 +161,220 @@ public class ConversationService {
         message.setSender(sender);
         message.setText(request.getContent());
         message.setCreatedAt(LocalDateTime.now());
-        message.setReadAt(null);
+        conversationRepository.reserveSeq(conversationId, 1);
+        message.setSeq(conversationRepository.findLastSeq(conversationId));
 
         Message savedMessage = messageRepository.save(message);
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
+        conversationRepository.recordMessage(conversationId, savedMessage.getId(), senderId,
+                preview(savedMessage.getText()), savedMessage.getCreatedAt());
+        // Only groups have member rows to update
+        if (conversationMembershipCache.isGroup(conversationId)) {
+            conversationRepository.recordMemberMessage(conversationId, savedMessage.getId(), senderId,
+                    savedMessage.getCreatedAt());
+        }
 
-        return ConversationMapper.mapMessageToDto(savedMessage);
+        MessageDto dto = ConversationMapper.mapMessageToDto(savedMessage);
+        // Only committed messages may enter the ring; a rolled-back seq would be handed out again
+        afterCommit(() -> recentMessageCache.append(conversationId, dto));
+        return dto;
     }
 
-    public PageResponse<MessageDto> getConversationMessages(Long userId, Long conversationId, int page, int size) {
-        Conversation conversation = conversationRepository.findById(conversationId)
+    public SliceResponse<MessageDto> getConversationMessages(Long userId, Long conversationId, String before, int size, boolean includeTotal) {
+        requireParticipant(conversationId, userId);
+
+        // Read first: the page below comes from the same snapshot, so last_seq tells whether the ring is current
+        Object[] conversationRow = conversationRepository.findParticipantsByIdIn(List.of(conversationId)).stream()
+                .findFirst()
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        ReadWatermarks watermarks = readWatermarks(conversationRow, userId);
+        long lastSeq = (Long) conversationRow[3];
 
-        if (!conversation.getUser1().getId().equals(userId) && !conversation.getUser2().getId().equals(userId)) {
-            throw new IllegalArgumentException("User is not part of this conversation");
+        PageCursor cursor = PageCursor.decode(before);
+        List<MessageDto> messages = cursor == null ? recentMessageCache.newest(conversationId, lastSeq, size) : null;
+        if (messages == null) {
+            Pageable limit = PageRequest.of(0, size + 1);
+            messages = (cursor == null
+                    ? messageRepository.findByConversationFirstSlice(conversationId, limit)
+                    : messageRepository.findByConversationBeforeSeq(conversationId, cursor.getId(), limit))
+                    .stream()
+                    .map(ConversationMapper::mapMessageToDto)
+                    .toList();
+            if (cursor == null) {
+                recentMessageCache.fill(conversationId, messages, lastSeq, messages.size() <= size);
+            }
+        }
+        Long total = includeTotal ? messageRepository.countByConversationId(conversationId) : null;
+
+        // Viewing the newest messages reads everything up to them: one UPDATE and one receipt, not one per message
+        if (cursor == null && !messages.isEmpty()) {
+            Long newestId = messages.stream().limit(size).mapToLong(MessageDto::getId).max().getAsLong();
+            int advanced = watermarks.group()
+                    ? conversationRepository.advanceMemberReadWatermark(conversationId, userId, newestId)
+                    : conversationRepository.advanceReadWatermark(conversationId, userId, newestId);
+            if (advanced > 0) {
+                watermarks = watermarks.advance(userId, newestId);
+                eventService.broadcastReadReceipt(conversationId, userId, newestId);
+            }
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Message> messages = messageRepository.findByConversationId(conversationId, pageable);
+        ReadWatermarks readState = watermarks;
+        // Message slices are keyed by seq, carried in the cursor's id; created_at is stored rounded to the
+        // second, so a cursor built from an in-memory timestamp would not line up with the stored rows
+        return PostMapper.convertSliceToResponse(messages, size, msg -> new PageCursor(msg.getCreatedAt(), msg.getSeq()),
+                page -> page.stream()
+                        .map(msg -> ConversationMapper.withRead(msg, readState.isRead(msg.getSenderId(), msg.getId())))
+                        .toList(), total);
+    }
 
-        // Mark messages as read
-        messages.getContent().stream()
-                .filter(msg -> !msg.getSender().getId().equals(userId) && msg.getReadAt() == null)
-                .forEach(msg -> {
-                    msg.setReadAt(LocalDateTime.now());
-                    messageRepository.save(msg);
-                });
+    /**
+     * Returns, per conversation, the messages stored after the seq the client last saw, oldest first and
+     * at most chat.sync.page-size each. Conversations that no longer exist are left out. Nothing is marked
+     * read, so a reconnect costs one range scan per conversation and O(missed messages) rows.
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationSyncDto> syncConversations(Long userId, Map<Long, Long> lastSeqs) {
+        if (lastSeqs.size() > maxSyncConversations) {
+            throw new IllegalArgumentException("At most " + maxSyncConversations + " conversations can be synced at once");
+        }
+        if (lastSeqs.isEmpty()) {
+            return List.of();
+        }
 
-        List<MessageDto> dtos = messages.getContent().stream()
-                .map(ConversationMapper::mapMessageToDto)
+        Map<Long, Object[]> conversations = conversationRepository.findParticipantsByIdIn(lastSeqs.keySet()).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        List<Long> groupIds = conversations.values().stream()
+                .filter(row -> row[6] == Conversation.ConversationType.GROUP)
+                .map(row -> (Long) row[0])
                 .toList();
+        Map<Long, Long> memberLastReadIds = memberLastReadIds(userId, groupIds);
+
+        List<ConversationSyncDto> result = new ArrayList<>(conversations.size());
+        for (Map.Entry<Long, Long> entry : lastSeqs.entrySet()) {
+            Object[] row = conversations.get(entry.getKey());
+            if (row == null) {
+                continue;
+            }
+            requireParticipant(entry.getKey(), userId);
+
+            long afterSeq = entry.getValue() != null ? Math.max(entry.getValue(), 0) : 0;
+            List<Message> messages = messageRepository.findByConversationAfterSeq(entry.getKey(), afterSeq,
+                    PageRequest.of(0, syncPageSize + 1));
+            boolean hasMore = messages.size() > syncPageSize;
+            ReadWatermarks watermarks = row[6] == Conversation.ConversationType.GROUP
+                    ? ReadWatermarks.ofMember(userId, memberLastReadIds.getOrDefault(entry.getKey(), 0L))
+                    : ReadWatermarks.of(row);
+            result.add(ConversationSyncDto.builder()
+                    .conversationId(entry.getKey())
+                    .lastSeq((Long) row[3])
+                    .messages(messages.stream()
+                            .limit(syncPageSize)
+                            .map(msg -> ConversationMapper.mapMessageToDto(msg, watermarks.isRead(msg.getSender().getId(), msg.getId())))
+                            .toList())
+                    .hasMore(hasMore)
+                    .build());
+        }
+        return result;
+    }
+
+    private ReadWatermarks readWatermarks(Object[] conversationRow, Long userId) {
+        if (conversationRow[6] != Conversation.ConversationType.GROUP) {
+            return ReadWatermarks.of(conversationRow);
+        }
+        Long conversationId = (Long) conversationRow[0];
+        return ReadWatermarks.ofMember(userId, memberLastReadIds(userId, List.of(conversationId)).getOrDefault(conversationId, 0L));
+    }
+
+    private Map<Long, Long> memberLastReadIds(Long userId, Collection<Long> groupIds) {
+        if (groupIds.isEmpty()) {
+            return Map.of();
+        }
+        return conversationRepository.findMemberLastReadIds(userId, groupIds).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * Read watermarks of a conversation's two participants. A message is read once the watermark of the
+     * participant who did not send it has reached the message id. A group has no single recipient, so
+     * there only the viewing member's own watermark is held (as user1) and read means read by the viewer.
+     */
+    private record ReadWatermarks(Long user1Id, long user1LastReadId, long user2LastReadId, boolean group) {
+        // From a ConversationRepository.findParticipantsByIdIn row
+        static ReadWatermarks of(Object[] row) {
+            return new ReadWatermarks((Long) row[1], (Long) row[4], (Long) row[5], false);
+        }
+
+        static ReadWatermarks ofMember(Long userId, long lastReadId) {
+            return new ReadWatermarks(userId, lastReadId, 0, true);
+        }
+
+        ReadWatermarks advance(Long userId, long messageId) {
+            return user1Id.equals(userId)
+                    ? new ReadWatermarks(user1Id, Math.max(user1LastReadId, messageId), user2LastReadId, group)
+                    : new ReadWatermarks(user1Id, user1LastReadId, Math.max(user2LastReadId, messageId), group);
+        }
+
+        boolean isRead(Long senderId, Long messageId) {
+            if (group) {
+                return messageId <= user1LastReadId;
+            }
+            long recipientLastReadId = user1Id.equals(senderId) ? user2LastReadId : user1LastReadId;
+            return messageId <= recipientLastReadId;
+        }
+    }
 
-        return PageResponse.<MessageDto>builder()
-                .content(dtos)
-                .pageNumber(page)
-                .pageSize(size)
-                .totalElements(messages.getTotalElements())
-                .totalPages(messages.getTotalPages())
-                .hasNext(messages.hasNext())
-                .hasPrevious(messages.hasPrevious())
-                .build();
+    private static String preview(String text) {
+        if (text == null) {
+            return null;
+        }
+        return text.length() > PREVIEW_LENGTH ? text.substring(0, PREVIEW_LENGTH) : text;
     }
 
+    /**
+     * Deletes a direct conversation for both participants. Deleting a group only removes the caller
+     * from it; the group itself goes once its last member has left. A member who leaves loses their
+     * conversation topic subscriptions on every node and is told on /user/queue/conversations/left.
+     */
     public void deleteConversation(Long userId, Long conversationId) {
+        requireParticipant(conversationId, userId);
+
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        if (conversation.getType() == Conversation.ConversationType.GROUP) {
+            conversationRepository.deleteMember(conversationId, userId);
+            membershipEventBus.publish(new MembershipEvent(conversationId, userId));
+            afterCommit(() -> eventService.notifyMemberLeft(userId, conversationId));
+            if (!conversationRepository.findMemberIds(conversationId).isEmpty()) {
+                return;
+            }
+        } else {
+            membershipEventBus.publish(new MembershipEvent(conversationId, null));
+        }
+
+        conversationRepository.deleteById(conversationId);
+        conversationMembershipCache.evict(conversationId);
+        recentMessageCache.evict(conversationId);
+    }
 
-        if (!conversation.getUser1().getId().equals(userId) && !conversation.getUser2().getId().equals(userId)) {
+    private void requireParticipant(Long conversationId, Long userId) {
+        if (!conversationMembershipCache.isParticipant(conversationId, userId)) {
             throw new IllegalArgumentException("User is not part of this conversation");
         }
+    }
+
+    private static Conversation requireGroup(Optional<Conversation> found) {
+        Conversation conversation = found.orElseThrow(() -> new RuntimeException("Conversation not found"));
+        if (conversation.getType() != Conversation.ConversationType.GROUP) {
+            throw new IllegalArgumentException("Members can only be added to group conversations");
+        }
+        return conversation;
+    }
 
-        conversationRepository.delete(conversation);
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
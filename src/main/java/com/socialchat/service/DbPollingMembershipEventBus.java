@@ -0,0 +1,114 @@
+package com.socialchat.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node bus that tails conversation_membership_events by id watermark.
+ *
+ * The event row is written in the publishing transaction, so a membership change is never committed
+ * without it. Local subscribers are notified on commit; other nodes pick the row up on their next
+ * poll, so a member who left loses access cluster-wide within chat.membership-cache.poll-interval.
+ * As with token revocations, each poll re-reads rows created within the lookback window because
+ * AUTO_INCREMENT ids can commit out of order; redelivery only repeats an eviction.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.membership-cache.bus", havingValue = "db-polling")
+@RequiredArgsConstructor
+@Slf4j
+public class DbPollingMembershipEventBus implements MembershipEventBus {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Consumer<MembershipEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Value("${chat.membership-cache.poll-lookback-seconds:30}")
+    private long lookbackSeconds;
+
+    private volatile long watermark;
+
+    @PostConstruct
+    void init() {
+        // The cache starts empty, so earlier changes are already reflected by what it loads
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM conversation_membership_events", Long.class);
+        watermark = maxId != null ? maxId : 0L;
+    }
+
+    @Override
+    public void publish(MembershipEvent event) {
+        jdbcTemplate.update("INSERT INTO conversation_membership_events (conversation_id, removed_user_id, created_at) VALUES (?, ?, ?)",
+                event.conversationId(), event.removedUserId(), LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(event);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<MembershipEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.membership-cache.poll-interval:2000}")
+    public void poll() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusSeconds(lookbackSeconds);
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, conversation_id, removed_user_id FROM conversation_membership_events " +
+                            "WHERE id > ? OR created_at >= ? ORDER BY id",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getObject(3, Long.class)},
+                    watermark, since);
+
+            long maxSeen = watermark;
+            for (Object[] row : rows) {
+                maxSeen = Math.max(maxSeen, (Long) row[0]);
+                deliver(new MembershipEvent((Long) row[1], (Long) row[2]));
+            }
+            watermark = maxSeen;
+        } catch (Exception e) {
+            log.error("Error polling conversation membership events", e);
+        }
+    }
+
+    /**
+     * Rows are only read within the lookback window; a node started later loads memberships from scratch.
+     */
+    @Scheduled(fixedDelayString = "${chat.membership-cache.prune-interval:3600000}")
+    public void prune() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM conversation_membership_events WHERE created_at < ?",
+                    LocalDateTime.now().minusSeconds(lookbackSeconds * 2));
+            log.debug("Pruned {} conversation membership events", deleted);
+        } catch (Exception e) {
+            log.error("Error pruning conversation membership events", e);
+        }
+    }
+
+    private void deliver(MembershipEvent event) {
+        listeners.forEach(listener -> {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Error handling membership change of conversation {}", event.conversationId(), e);
+            }
+        });
+    }
+}
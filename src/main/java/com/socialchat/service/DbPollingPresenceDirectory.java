@@ -0,0 +1,182 @@
+package com.socialchat.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node directory kept in presence_node_sessions: one row per node holding at least one live
+ * session of a user, so the user is online while any row exists.
+ *
+ * A change locks the user's row first, so changes from several nodes are serialized and exactly one of
+ * them sees each transition; it writes the transition to presence_events in the same transaction.
+ * Every node tails presence_events by id watermark, like the other polling buses, and re-reads the
+ * lookback window; events are applied in id order, which per user is the order they were decided in.
+ * Each node heartbeats in presence_nodes, and the rows of a node silent for presence.node-timeout are
+ * released by the others, so a crashed node does not leave its users online.
+ */
+@Component
+@ConditionalOnProperty(name = "presence.directory", havingValue = "db-polling")
+@RequiredArgsConstructor
+@Slf4j
+public class DbPollingPresenceDirectory implements PresenceDirectory {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Consumer<PresenceEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Value("${presence.node-timeout:30000}")
+    private long nodeTimeoutMs;
+
+    @Value("${presence.poll-lookback-seconds:30}")
+    private long lookbackSeconds;
+
+    // -1 until the first poll, which starts from the newest event: the registry loads older state on demand
+    private volatile long watermark = -1;
+
+    @Override
+    public Boolean update(long userId, boolean hasLocalSession) {
+        return transactionTemplate.execute(status -> change(nodeId, userId, hasLocalSession));
+    }
+
+    @Override
+    public void publish(PresenceEvent event) {
+        insertEvent(event.userId(), event.online());
+    }
+
+    @Override
+    public boolean isOnline(long userId) {
+        return countNodes(userId) > 0;
+    }
+
+    @Override
+    public List<Long> releaseDeadNodes() {
+        List<String> deadNodes = jdbcTemplate.queryForList(
+                "SELECT node_id FROM presence_nodes WHERE heartbeat_at < ? AND node_id <> ?", String.class,
+                LocalDateTime.now().minusNanos(nodeTimeoutMs * 1_000_000), nodeId);
+
+        List<Long> wentOffline = new ArrayList<>();
+        for (String deadNode : deadNodes) {
+            List<Long> userIds = jdbcTemplate.queryForList(
+                    "SELECT user_id FROM presence_node_sessions WHERE node_id = ?", Long.class, deadNode);
+            for (Long userId : userIds) {
+                if (Boolean.FALSE.equals(transactionTemplate.execute(status -> change(deadNode, userId, false)))) {
+                    wentOffline.add(userId);
+                }
+            }
+            // Removed last, so a node that dies while releasing leaves the rest for the next one
+            jdbcTemplate.update("DELETE FROM presence_nodes WHERE node_id = ?", deadNode);
+            log.warn("Released {} presence sessions of node {}, silent for over {} ms",
+                    userIds.size(), deadNode, nodeTimeoutMs);
+        }
+        return wentOffline;
+    }
+
+    @Override
+    public void subscribe(Consumer<PresenceEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${presence.node-heartbeat-interval:10000}")
+    public void heartbeat() {
+        try {
+            jdbcTemplate.update("INSERT INTO presence_nodes (node_id, heartbeat_at) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE heartbeat_at = VALUES(heartbeat_at)", nodeId, LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Error writing presence heartbeat of node {}", nodeId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${presence.poll-interval:1000}")
+    public void poll() {
+        try {
+            if (watermark < 0) {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM presence_events", Long.class);
+                watermark = maxId != null ? maxId : 0L;
+                return;
+            }
+
+            LocalDateTime since = LocalDateTime.now().minusSeconds(lookbackSeconds);
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, user_id, online FROM presence_events WHERE id > ? OR created_at >= ? ORDER BY id",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getBoolean(3)},
+                    watermark, since);
+
+            long maxSeen = watermark;
+            for (Object[] row : rows) {
+                maxSeen = Math.max(maxSeen, (Long) row[0]);
+                deliver(new PresenceEvent((Long) row[1], (Boolean) row[2]));
+            }
+            watermark = maxSeen;
+        } catch (Exception e) {
+            log.error("Error polling presence events", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${presence.prune-interval:3600000}")
+    public void prune() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM presence_events WHERE created_at < ?",
+                    LocalDateTime.now().minusSeconds(lookbackSeconds * 2));
+            log.debug("Pruned {} presence events", deleted);
+        } catch (Exception e) {
+            log.error("Error pruning presence events", e);
+        }
+    }
+
+    /**
+     * Must run in a transaction: the lock on the user's row is held until commit, so the next change of
+     * the same user, from any node, sees this one's row.
+     */
+    private Boolean change(String node, long userId, boolean hasSession) {
+        jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, userId);
+        boolean wasOnline = countNodes(userId) > 0;
+        if (hasSession) {
+            jdbcTemplate.update("INSERT INTO presence_node_sessions (node_id, user_id) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE user_id = user_id", node, userId);
+        } else {
+            jdbcTemplate.update("DELETE FROM presence_node_sessions WHERE node_id = ? AND user_id = ?", node, userId);
+        }
+        boolean online = countNodes(userId) > 0;
+        if (online == wasOnline) {
+            return null;
+        }
+        insertEvent(userId, online);
+        return online;
+    }
+
+    private int countNodes(long userId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM presence_node_sessions WHERE user_id = ?", Integer.class, userId);
+        return count != null ? count : 0;
+    }
+
+    private void insertEvent(long userId, boolean online) {
+        jdbcTemplate.update("INSERT INTO presence_events (user_id, online, created_at) VALUES (?, ?, ?)",
+                userId, online, LocalDateTime.now());
+    }
+
+    private void deliver(PresenceEvent event) {
+        listeners.forEach(listener -> {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Error applying presence change of user {}", event.userId(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.socialchat.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node bus that tails user_profile_events by id watermark.
+ *
+ * The event row is written in the publishing transaction, so a profile change is never committed
+ * without it. Local subscribers are notified on commit; other nodes pick the row up on their next poll,
+ * so an edited profile reaches every node's cache and live sessions within
+ * websocket.profile-cache.poll-interval. Like the membership bus, each poll re-reads the lookback
+ * window; redelivery only repeats a reload.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.profile-cache.bus", havingValue = "db-polling")
+@RequiredArgsConstructor
+@Slf4j
+public class DbPollingProfileEventBus implements ProfileEventBus {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Consumer<ProfileEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Value("${websocket.profile-cache.poll-lookback-seconds:30}")
+    private long lookbackSeconds;
+
+    private volatile long watermark;
+
+    @PostConstruct
+    void init() {
+        // The cache starts empty, so earlier changes are already reflected by what it loads
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_profile_events", Long.class);
+        watermark = maxId != null ? maxId : 0L;
+    }
+
+    @Override
+    public void publish(ProfileEvent event) {
+        jdbcTemplate.update("INSERT INTO user_profile_events (user_id, created_at) VALUES (?, ?)",
+                event.userId(), LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(event);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<ProfileEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.profile-cache.poll-interval:2000}")
+    public void poll() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusSeconds(lookbackSeconds);
+            List<long[]> rows = jdbcTemplate.query(
+                    "SELECT id, user_id FROM user_profile_events WHERE id > ? OR created_at >= ? ORDER BY id",
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                    watermark, since);
+
+            long maxSeen = watermark;
+            for (long[] row : rows) {
+                maxSeen = Math.max(maxSeen, row[0]);
+                deliver(new ProfileEvent(row[1]));
+            }
+            watermark = maxSeen;
+        } catch (Exception e) {
+            log.error("Error polling user profile events", e);
+        }
+    }
+
+    /**
+     * Rows are only read within the lookback window; a node started later loads profiles from scratch.
+     */
+    @Scheduled(fixedDelayString = "${websocket.profile-cache.prune-interval:3600000}")
+    public void prune() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM user_profile_events WHERE created_at < ?",
+                    LocalDateTime.now().minusSeconds(lookbackSeconds * 2));
+            log.debug("Pruned {} user profile events", deleted);
+        } catch (Exception e) {
+            log.error("Error pruning user profile events", e);
+        }
+    }
+
+    private void deliver(ProfileEvent event) {
+        listeners.forEach(listener -> {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Error handling profile change of user {}", event.userId(), e);
+            }
+        });
+    }
+}
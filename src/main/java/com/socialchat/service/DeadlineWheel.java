@@ -0,0 +1,50 @@
+package com.socialchat.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timer wheel of keys filed under the tick after their deadline. A sweep only visits the ticks that
+ * came due, so its cost is proportional to the keys it looks at rather than to every key filed. The
+ * owner keeps each key's actual deadline and decides on every visit whether to re-file or drop it,
+ * which lets activity push a deadline back without touching the wheel.
+ */
+final class DeadlineWheel<K> {
+    /**
+     * Returned by a sweep visitor to leave the key out of the wheel.
+     */
+    static final long DONE = -1;
+
+    private final long tickMs;
+
+    private final ConcurrentSkipListMap<Long, Set<K>> ticks = new ConcurrentSkipListMap<>();
+
+    DeadlineWheel(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    void schedule(K key, long deadlineMs) {
+        ticks.computeIfAbsent(deadlineMs / tickMs + 1, tick -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * Hands each key of the ticks due by nowMs to the visitor, which returns the key's next deadline to
+     * re-file it, or DONE.
+     */
+    void sweep(long nowMs, ToLongFunction<K> visitor) {
+        long currentTick = nowMs / tickMs;
+        Map.Entry<Long, Set<K>> bucket;
+        while ((bucket = ticks.firstEntry()) != null && bucket.getKey() <= currentTick) {
+            ticks.remove(bucket.getKey(), bucket.getValue());
+            for (K key : bucket.getValue()) {
+                long deadline = visitor.applyAsLong(key);
+                if (deadline != DONE) {
+                    schedule(key, deadline);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.PageCursor;
+import com.socialchat.dto.PostDto;
+import com.socialchat.dto.SliceResponse;
+import com.socialchat.entity.FriendRequest;
+import com.socialchat.entity.Post;
+import com.socialchat.mapper.PostMapper;
+import com.socialchat.repository.FeedItemRepository;
+import com.socialchat.repository.FriendRequestRepository;
+import com.socialchat.repository.LikeRepository;
+import com.socialchat.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Home timeline built from friends' posts.
+ *
+ * Posts are pushed into each friend's feed_items rows when they are created (fan-out-on-write).
+ * Authors with more friends than feed.fanout.max-friends are flagged fanout_on_read instead: their
+ * posts are not copied, and each of their friends gets a feed_sources row so the reader pulls the
+ * author's newest posts at read time. Both reads are bounded by the page size.
+ */
+@Service
+@Slf4j
+public class FeedService {
+    @Autowired
+    private FeedItemRepository feedItemRepository;
+
+    @Autowired
+    private FriendRequestRepository friendRequestRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Value("${feed.fanout.max-friends:1000}")
+    private long maxFanoutFriends;
+
+    @Transactional
+    public void fanOutPost(Long authorId, Long postId) {
+        feedItemRepository.insertFeedItem(authorId, postId);
+
+        long friendCount = friendRequestRepository.countByParticipantAndStatus(authorId, FriendRequest.FriendRequestStatus.ACCEPTED);
+        if (friendCount > maxFanoutFriends) {
+            if (feedItemRepository.markFanoutOnRead(authorId) > 0) {
+                int readers = feedItemRepository.insertPullSourceForFriends(authorId);
+                log.info("User {} switched to fan-out-on-read ({} friends, {} readers)", authorId, friendCount, readers);
+            }
+            return;
+        }
+
+        int delivered = feedItemRepository.fanOutToFriends(authorId, postId);
+        log.debug("Post {} fanned out to {} feeds", postId, delivered);
+    }
+
+    @Transactional
+    public void onFriendshipAccepted(Long userId1, Long userId2) {
+        if (feedItemRepository.countFanoutOnRead(userId1) > 0) {
+            feedItemRepository.insertPullSource(userId2, userId1);
+        }
+        if (feedItemRepository.countFanoutOnRead(userId2) > 0) {
+            feedItemRepository.insertPullSource(userId1, userId2);
+        }
+    }
+
+    /**
+     * Returns up to size posts older than the before cursor (newest first when before is null). Feed
+     * slices are ordered by post id alone, so only the cursor's id is used.
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<PostDto> getHomeFeed(Long userId, String before, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        PageCursor beforeCursor = PageCursor.decode(before);
+        long cursor = beforeCursor != null ? beforeCursor.getId() : Long.MAX_VALUE;
+
+        // One extra id per source is enough to tell whether another slice exists
+        List<Long> postIds = new ArrayList<>(feedItemRepository.findFeedPostIds(userId, cursor, size + 1));
+
+        List<Long> pullAuthorIds = feedItemRepository.findPullSourceAuthorIds(userId);
+        if (!pullAuthorIds.isEmpty()) {
+            postIds.addAll(postRepository.findRecentPostIdsByAuthors(pullAuthorIds, cursor, PageRequest.of(0, size + 1)));
+        }
+
+        List<Long> sortedIds = postIds.stream()
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        boolean hasNext = sortedIds.size() > size;
+        List<Long> pageIds = hasNext ? sortedIds.subList(0, size) : sortedIds;
+        if (pageIds.isEmpty()) {
+            return SliceResponse.<PostDto>builder().content(List.of()).pageSize(size).build();
+        }
+
+        Map<Long, Post> postsById = postRepository.findAllWithAuthorByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = pageIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        // The cursor keeps the page's last id even if that post was deleted since its feed row was written
+        LocalDateTime lastCreatedAt = posts.isEmpty() ? LocalDateTime.now() : posts.get(posts.size() - 1).getCreatedAt();
+        String nextCursor = hasNext ? new PageCursor(lastCreatedAt, pageIds.get(pageIds.size() - 1)).encode() : null;
+
+        return SliceResponse.<PostDto>builder()
+                .content(PostMapper.convertListToDtos(posts, userId, likeRepository))
+                .pageSize(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
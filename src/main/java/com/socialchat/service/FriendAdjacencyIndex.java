@@ -0,0 +1,52 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.FriendRequest;
+import com.socialchat.repository.FriendRequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory accepted-friend sets, loaded per user on first use from friend_requests.
+ *
+ * Entries are only needed while the user is online (to fan out their presence and to build their
+ * own friends snapshot), so they are evicted when the user goes offline. Accepted requests update
+ * both loaded sides in place.
+ */
+@Component
+@RequiredArgsConstructor
+public class FriendAdjacencyIndex {
+    private final FriendRequestRepository friendRequestRepository;
+
+    private final Map<Long, Set<Long>> friendsByUser = new ConcurrentHashMap<>();
+
+    public Set<Long> friendsOf(Long userId) {
+        Set<Long> friends = friendsByUser.get(userId);
+        if (friends != null) {
+            return friends;
+        }
+
+        Set<Long> loaded = ConcurrentHashMap.newKeySet();
+        loaded.addAll(friendRequestRepository.findFriendIds(userId, FriendRequest.FriendRequestStatus.ACCEPTED));
+        Set<Long> existing = friendsByUser.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    public void addFriendship(Long userId1, Long userId2) {
+        friendsByUser.computeIfPresent(userId1, (id, friends) -> {
+            friends.add(userId2);
+            return friends;
+        });
+        friendsByUser.computeIfPresent(userId2, (id, friends) -> {
+            friends.add(userId1);
+            return friends;
+        });
+    }
+
+    public void evict(Long userId) {
+        friendsByUser.remove(userId);
+    }
+}
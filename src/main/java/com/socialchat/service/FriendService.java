@@ -11,6 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +29,12 @@ public class FriendService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private FriendAdjacencyIndex friendAdjacencyIndex;
+
     @Transactional
     public FriendRequestDto sendFriendRequest(Long senderId, Long receiverId) {
         if (senderId.equals(receiverId)) {
@@ -76,6 +84,10 @@ public class FriendService {
 
         friendRequest.setStatus(FriendRequest.FriendRequestStatus.ACCEPTED);
         friendRequest = friendRequestRepository.save(friendRequest);
+        feedService.onFriendshipAccepted(friendRequest.getSender().getId(), userId);
+        Long senderId = friendRequest.getSender().getId();
+        // The index is read outside any transaction, so it must not show a friendship that rolls back
+        afterCommit(() -> friendAdjacencyIndex.addFriendship(senderId, userId));
         
         notificationService.createFriendRequestAcceptedNotification(friendRequest.getSender().getId(), userId);
         
@@ -165,4 +177,13 @@ public class FriendService {
         var request2 = friendRequestRepository.findBySenderIdAndReceiverId(userId2, userId1);
         return request2.isPresent() && request2.get().getStatus() == FriendRequest.FriendRequestStatus.ACCEPTED;
     }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,43 @@
+package com.socialchat.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Single-node directory: this node's sessions are the only ones, so every change it reports is a change
+ * of the user's state and there is nobody else to tell.
+ */
+@Component
+@ConditionalOnProperty(name = "presence.directory", havingValue = "in-process", matchIfMissing = true)
+public class InProcessPresenceDirectory implements PresenceDirectory {
+    private final Set<Long> online = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Boolean update(long userId, boolean hasLocalSession) {
+        boolean changed = hasLocalSession ? online.add(userId) : online.remove(userId);
+        return changed ? hasLocalSession : null;
+    }
+
+    @Override
+    public void publish(PresenceEvent event) {
+    }
+
+    @Override
+    public boolean isOnline(long userId) {
+        return online.contains(userId);
+    }
+
+    @Override
+    public List<Long> releaseDeadNodes() {
+        return List.of();
+    }
+
+    @Override
+    public void subscribe(Consumer<PresenceEvent> listener) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.socialchat.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-node bus: events are delivered to local subscribers only, after the publishing transaction commits.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.profile-cache.bus", havingValue = "in-process", matchIfMissing = true)
+public class InProcessProfileEventBus implements ProfileEventBus {
+    private final List<Consumer<ProfileEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ProfileEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(event);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<ProfileEvent> listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(ProfileEvent event) {
+        listeners.forEach(listener -> listener.accept(event));
+    }
+}
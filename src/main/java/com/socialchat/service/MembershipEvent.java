@@ -0,0 +1,8 @@
+package com.socialchat.service;
+
+/**
+ * A change to who may access a conversation, as seen by every node: members were added, a member left
+ * (removedUserId set), or the conversation was deleted.
+ */
+public record MembershipEvent(long conversationId, Long removedUserId) {
+}
@@ -0,0 +1,16 @@
+package com.socialchat.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Propagates conversation membership changes to the membership cache and the subscriptions of every node.
+ *
+ * Publishers call publish inside the transaction that changes the membership; local subscribers are
+ * notified once it commits. The active implementation is selected with chat.membership-cache.bus
+ * (in-process or db-polling).
+ */
+public interface MembershipEventBus {
+    void publish(MembershipEvent event);
+
+    void subscribe(Consumer<MembershipEvent> listener);
+}
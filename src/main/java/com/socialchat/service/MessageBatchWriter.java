@@ -0,0 +1,111 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.Conversation;
+import com.socialchat.entity.Message;
+import com.socialchat.repository.ConversationRepository;
+import com.socialchat.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBatchWriter {
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+
+    /**
+     * Persists one micro-batch and updates the inbox state of the touched conversations, all in one
+     * transaction. Messages stored by an earlier attempt are recognised by their client message id and
+     * skipped, so the batch can be retried as a whole. Returns the newly stored messages, with their
+     * ids and sequence numbers set.
+     */
+    @Transactional
+    public List<Message> writeBatch(List<Message> batch) {
+        List<Long> conversationIds = batch.stream()
+                .map(message -> message.getConversation().getId())
+                .distinct()
+                .toList();
+        // Checked against the database rather than the membership cache, which may not have seen a member
+        // leave on another node yet; group memberships of the whole batch take one query
+        Map<Long, Set<Long>> participants = new HashMap<>();
+        List<Long> groupIds = new ArrayList<>();
+        for (Object[] row : conversationRepository.findParticipantsByIdIn(conversationIds)) {
+            Long conversationId = (Long) row[0];
+            if (row[6] == Conversation.ConversationType.GROUP) {
+                groupIds.add(conversationId);
+                participants.put(conversationId, new HashSet<>());
+            } else {
+                participants.put(conversationId, Set.of((Long) row[1], (Long) row[2]));
+            }
+        }
+        if (!groupIds.isEmpty()) {
+            Set<Long> senderIds = batch.stream()
+                    .map(message -> message.getSender().getId())
+                    .collect(Collectors.toSet());
+            for (Object[] row : conversationRepository.findMemberships(groupIds, senderIds)) {
+                participants.get(((Number) row[0]).longValue()).add(((Number) row[1]).longValue());
+            }
+        }
+
+        // A conversation deleted, or a group left, after the message was accepted would otherwise fail the whole batch
+        List<Message> valid = batch.stream()
+                .filter(message -> participants.getOrDefault(message.getConversation().getId(), Set.of())
+                        .contains(message.getSender().getId()))
+                .toList();
+        if (valid.size() < batch.size()) {
+            log.warn("Dropped {} queued messages for missing conversations or non-participants", batch.size() - valid.size());
+        }
+
+        valid.forEach(message -> {
+            message.setId(null);
+            message.setSeq(null);
+        });
+        messageRepository.resolveIds(valid);
+        List<Message> fresh = valid.stream()
+                .filter(message -> message.getId() == null)
+                .toList();
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+
+        reserveSeqs(fresh);
+        messageRepository.insertAll(fresh);
+        messageRepository.resolveIds(fresh);
+        List<Message> stored = fresh.stream()
+                .filter(message -> message.getId() != null)
+                .toList();
+        List<Long> storedIds = stored.stream().map(Message::getId).distinct().toList();
+        conversationRepository.recordMessageBatch(storedIds);
+        conversationRepository.recordMemberMessageBatch(storedIds);
+
+        return stored;
+    }
+
+    /**
+     * Numbers the messages of each conversation in queue order. Conversations are locked in id order so
+     * concurrent writers cannot deadlock on each other's rows.
+     */
+    private void reserveSeqs(List<Message> messages) {
+        Map<Long, List<Message>> byConversation = messages.stream()
+                .collect(Collectors.groupingBy(message -> message.getConversation().getId(), TreeMap::new, Collectors.toList()));
+        byConversation.forEach((conversationId, conversationMessages) -> {
+            conversationRepository.reserveSeq(conversationId, conversationMessages.size());
+            long seq = conversationRepository.findLastSeq(conversationId) - conversationMessages.size();
+            for (Message message : conversationMessages) {
+                message.setSeq(++seq);
+            }
+        });
+    }
+}
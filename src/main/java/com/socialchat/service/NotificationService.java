@@ -1,14 +1,14 @@
 package com.socialchat.service;
 
 import com.socialchat.dto.NotificationDto;
-import com.socialchat.dto.PageResponse;
+import com.socialchat.dto.PageCursor;
+import com.socialchat.dto.SliceResponse;
 import com.socialchat.entity.*;
 import com.socialchat.mapper.NotificationMapper;
 import com.socialchat.mapper.PostMapper;
 import com.socialchat.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -126,26 +126,34 @@ public class NotificationService {
         );
     }
 
-    public PageResponse<NotificationDto> getNotifications(Long userId, int page, int size) {
+    public SliceResponse<NotificationDto> getNotifications(Long userId, String before, int size, boolean includeTotal) {
         userRepository.findByIdAndIsDeletedFalse(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-        Page<NotificationDto> notificationDtos = notifications.map(NotificationMapper::convertToDto);
-        
-        return PostMapper.convertPageToResponse(notificationDtos);
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Notification> notifications = cursor == null
+                ? notificationRepository.findByUserFirstSlice(userId, limit)
+                : notificationRepository.findByUserSliceBefore(userId, cursor.getCreatedAt(), cursor.getId(), limit);
+        Long total = includeTotal ? notificationRepository.countByUserId(userId) : null;
+
+        return PostMapper.convertSliceToResponse(notifications, size, n -> new PageCursor(n.getCreatedAt(), n.getId()),
+                page -> page.stream().map(NotificationMapper::convertToDto).toList(), total);
     }
 
-    public PageResponse<NotificationDto> getUnreadNotifications(Long userId, int page, int size) {
+    public SliceResponse<NotificationDto> getUnreadNotifications(Long userId, String before, int size, boolean includeTotal) {
         userRepository.findByIdAndIsDeletedFalse(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Notification> notifications = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId, pageable);
-        Page<NotificationDto> notificationDtos = notifications.map(NotificationMapper::convertToDto);
-        
-        return PostMapper.convertPageToResponse(notificationDtos);
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Notification> notifications = cursor == null
+                ? notificationRepository.findUnreadByUserFirstSlice(userId, limit)
+                : notificationRepository.findUnreadByUserSliceBefore(userId, cursor.getCreatedAt(), cursor.getId(), limit);
+        Long total = includeTotal ? notificationRepository.countByUserIdAndIsReadFalse(userId) : null;
+
+        return PostMapper.convertSliceToResponse(notifications, size, n -> new PageCursor(n.getCreatedAt(), n.getId()),
+                page -> page.stream().map(NotificationMapper::convertToDto).toList(), total);
     }
 
     public long getUnreadNotificationCount(Long userId) {
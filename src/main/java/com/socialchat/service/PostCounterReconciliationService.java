@@ -0,0 +1,46 @@
+package com.socialchat.service;
+
+import com.socialchat.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostCounterReconciliationService {
+    private final PostRepository postRepository;
+
+    @Value("${post.counters.reconcile-batch-size:1000}")
+    private long batchSize;
+
+    /**
+     * Scheduled task that repairs drift in the denormalized posts.like_count / posts.comment_count columns.
+     *
+     * The counters are kept up to date by PostService with atomic increments, but rows can still drift
+     * when likes or comments disappear through paths that bypass the service (ON DELETE CASCADE from a
+     * deleted user, manual cleanup, a failed transaction replayed by hand).
+     *
+     * The posts table is walked in id ranges so each batch is a short transaction that only touches
+     * rows whose stored counters differ from the real counts.
+     */
+    @Scheduled(fixedDelayString = "${post.counters.reconcile-interval:3600000}")  // 1 hour by default
+    public void reconcileCounters() {
+        try {
+            long maxId = postRepository.findMaxId();
+            int fixed = 0;
+
+            for (long fromId = 1; fromId <= maxId; fromId += batchSize) {
+                fixed += postRepository.reconcileCounters(fromId, fromId + batchSize - 1);
+            }
+
+            if (fixed > 0) {
+                log.info("Post counter reconciliation completed: {} posts corrected", fixed);
+            }
+        } catch (Exception e) {
+            log.error("Error during post counter reconciliation", e);
+        }
+    }
+}
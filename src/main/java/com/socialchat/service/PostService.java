@@ -12,12 +12,13 @@ import com.socialchat.repository.PostRepository;
 import com.socialchat.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @Slf4j
 public class PostService {
@@ -36,6 +37,9 @@ public class PostService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private FeedService feedService;
+
     @Transactional
     public PostDto createPost(Long userId, CreatePostRequest request) {
         User user = userRepository.findByIdAndIsDeletedFalse(userId)
@@ -46,10 +50,13 @@ public class PostService {
                 .text(request.getText())
                 .imageUrl(request.getImageUrl())
                 .isPublic(request.getIsPublic())
+                .likeCount(0L)
+                .commentCount(0L)
                 .build();
 
         post = postRepository.save(post);
-        return PostMapper.convertToDto(post, userId, likeRepository);
+        feedService.fanOutPost(userId, post.getId());
+        return PostMapper.convertToDto(post, false);
     }
 
     public PostDto getPostById(Long postId, Long currentUserId) {
@@ -58,21 +65,31 @@ public class PostService {
         return PostMapper.convertToDto(post, currentUserId, likeRepository);
     }
 
-    public PageResponse<PostDto> getPublicTimeline(int page, int size, Long currentUserId) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Post> posts = postRepository.findByIsPublicTrueOrderByCreatedAtDesc(pageable);
-        Page<PostDto> postDtos = posts.map(post -> PostMapper.convertToDto(post, currentUserId, likeRepository));
-        return PostMapper.convertPageToResponse(postDtos);
+    public SliceResponse<PostDto> getPublicTimeline(String before, int size, boolean includeTotal, Long currentUserId) {
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Post> posts = cursor == null
+                ? postRepository.findPublicFirstSlice(limit)
+                : postRepository.findPublicSliceBefore(cursor.getCreatedAt(), cursor.getId(), limit);
+        Long total = includeTotal ? postRepository.countByIsPublicTrue() : null;
+
+        return PostMapper.convertSliceToResponse(posts, size, post -> new PageCursor(post.getCreatedAt(), post.getId()),
+                page -> PostMapper.convertListToDtos(page, currentUserId, likeRepository), total);
     }
 
-    public PageResponse<PostDto> getUserPosts(Long userId, int page, int size, Long currentUserId) {
+    public SliceResponse<PostDto> getUserPosts(Long userId, String before, int size, boolean includeTotal, Long currentUserId) {
         userRepository.findByIdAndIsDeletedFalse(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Post> posts = postRepository.findByAuthorIdOrderByCreatedAtDesc(userId, pageable);
-        Page<PostDto> postDtos = posts.map(post -> PostMapper.convertToDto(post, currentUserId, likeRepository));
-        return PostMapper.convertPageToResponse(postDtos);
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Post> posts = cursor == null
+                ? postRepository.findByAuthorFirstSlice(userId, limit)
+                : postRepository.findByAuthorSliceBefore(userId, cursor.getCreatedAt(), cursor.getId(), limit);
+        Long total = includeTotal ? postRepository.countByAuthorId(userId) : null;
+
+        return PostMapper.convertSliceToResponse(posts, size, post -> new PageCursor(post.getCreatedAt(), post.getId()),
+                page -> PostMapper.convertListToDtos(page, currentUserId, likeRepository), total);
     }
 
     @Transactional
@@ -89,6 +106,7 @@ public class PostService {
                     .post(post)
                     .build();
             likeRepository.save(like);
+            postRepository.incrementLikeCount(postId);
             
             if (!post.getAuthor().getId().equals(userId)) {
                 notificationService.createPostLikeNotification(post.getAuthor().getId(), userId, postId);
@@ -104,8 +122,9 @@ public class PostService {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new IllegalArgumentException("Post not found"));
 
-        likeRepository.findByUserIdAndPostId(userId, postId)
-                .ifPresent(likeRepository::delete);
+        if (likeRepository.deleteByUserIdAndPostId(userId, postId) > 0) {
+            postRepository.decrementLikeCount(postId);
+        }
 
         post = postRepository.findById(postId).get();
         return PostMapper.convertToDto(post, userId, likeRepository);
@@ -126,6 +145,7 @@ public class PostService {
                 .build();
 
         comment = commentRepository.save(comment);
+        postRepository.incrementCommentCount(postId);
         
         if (!post.getAuthor().getId().equals(userId)) {
             notificationService.createPostCommentNotification(post.getAuthor().getId(), userId, postId);
@@ -134,15 +154,20 @@ public class PostService {
         return PostMapper.convertCommentToDto(comment);
     }
 
-    public PageResponse<CommentDto> getPostComments(Long postId, int page, int size) {
-        postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
+    public SliceResponse<CommentDto> getPostComments(Long postId, String before, int size, boolean includeTotal) {
+        if (!postRepository.existsById(postId)) {
+            throw new IllegalArgumentException("Post not found");
+        }
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId, pageable);
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Comment> comments = cursor == null
+                ? commentRepository.findByPostFirstSlice(postId, limit)
+                : commentRepository.findByPostSliceBefore(postId, cursor.getCreatedAt(), cursor.getId(), limit);
+        Long total = includeTotal ? commentRepository.countByPostId(postId) : null;
 
-        Page<CommentDto> commentDtos = comments.map(PostMapper::convertCommentToDto);
-        return PostMapper.convertPageToResponse(commentDtos);
+        return PostMapper.convertSliceToResponse(comments, size, comment -> new PageCursor(comment.getCreatedAt(), comment.getId()),
+                page -> page.stream().map(PostMapper::convertCommentToDto).toList(), total);
     }
 
     @Transactional
@@ -154,7 +179,9 @@ public class PostService {
             throw new IllegalArgumentException("Unauthorized to delete this comment");
         }
 
+        Long postId = comment.getPost().getId();
         commentRepository.delete(comment);
+        postRepository.decrementCommentCount(postId);
     }
 
     @Transactional
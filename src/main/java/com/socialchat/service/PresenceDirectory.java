@@ -0,0 +1,35 @@
+package com.socialchat.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide record of which nodes hold live sessions of a user; a user is online while any node has one.
+ *
+ * PresenceSessionRegistry counts sessions per node and reports when the node gains its first or loses its
+ * last session of a user. update records that and returns the user's new state only when it changed, so
+ * the node whose change flipped the user is the one that announces it to friends. Every change is also
+ * delivered to subscribers, so each node's registry follows changes made elsewhere. The active
+ * implementation is selected with presence.directory (in-process or db-polling).
+ */
+public interface PresenceDirectory {
+    /**
+     * Records whether this node holds a live session of the user. Returns the user's new state if it
+     * changed, otherwise null.
+     */
+    Boolean update(long userId, boolean hasLocalSession);
+
+    /**
+     * Announces a status set explicitly rather than through sessions.
+     */
+    void publish(PresenceEvent event);
+
+    boolean isOnline(long userId);
+
+    /**
+     * Releases the sessions of nodes that stopped heartbeating. Returns the users that went offline.
+     */
+    List<Long> releaseDeadNodes();
+
+    void subscribe(Consumer<PresenceEvent> listener);
+}
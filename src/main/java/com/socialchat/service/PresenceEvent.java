@@ -0,0 +1,7 @@
+package com.socialchat.service;
+
+/**
+ * A change to whether a user is online, decided by one node and applied by every node's presence registry.
+ */
+public record PresenceEvent(long userId, boolean online) {
+}
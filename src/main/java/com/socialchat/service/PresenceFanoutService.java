@@ -0,0 +1,72 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.UserPresenceDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivers presence changes to /user/queue/presence of each connected accepted friend.
+ *
+ * Changes are buffered per watcher and keyed by the friend that changed, so within one
+ * presence.fanout-window only the latest state of each friend survives and a watcher receives a
+ * single frame with all of its deltas, however many friends reconnected in the meantime.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceFanoutService {
+    private final FriendAdjacencyIndex friendAdjacencyIndex;
+    private final SimpUserRegistry simpUserRegistry;
+    private final WebSocketEventService webSocketEventService;
+
+    // watcher id -> friend id -> latest presence
+    private final Map<Long, Map<Long, UserPresenceDto>> pending = new ConcurrentHashMap<>();
+
+    public void onPresenceChanged(UserPresenceDto presence) {
+        for (Long friendId : friendAdjacencyIndex.friendsOf(presence.getUserId())) {
+            // Cluster-wide in relay mode, so friends connected to other nodes are included
+            if (simpUserRegistry.getUser(friendId.toString()) != null) {
+                enqueue(friendId, presence);
+            }
+        }
+        if (!presence.isOnline()) {
+            friendAdjacencyIndex.evict(presence.getUserId());
+        }
+    }
+
+    public void enqueue(Long watcherId, Collection<UserPresenceDto> presences) {
+        presences.forEach(presence -> enqueue(watcherId, presence));
+    }
+
+    private void enqueue(Long watcherId, UserPresenceDto presence) {
+        pending.compute(watcherId, (id, deltas) -> {
+            Map<Long, UserPresenceDto> batch = deltas != null ? deltas : new LinkedHashMap<>();
+            batch.put(presence.getUserId(), presence);
+            return batch;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${presence.fanout-window:250}")
+    public void flush() {
+        for (Long watcherId : pending.keySet()) {
+            Map<Long, UserPresenceDto> deltas = pending.remove(watcherId);
+            if (deltas == null || deltas.isEmpty()) {
+                continue;
+            }
+            try {
+                webSocketEventService.sendPresenceDeltas(watcherId, new ArrayList<>(deltas.values()));
+            } catch (Exception e) {
+                log.error("Error sending presence deltas to user {}", watcherId, e);
+            }
+        }
+    }
+}
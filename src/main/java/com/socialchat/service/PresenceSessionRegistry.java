@@ -0,0 +1,127 @@
+package com.socialchat.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks live STOMP sessions per user so presence reflects every connected device.
+ *
+ * Each session records the time of its last inbound frame (including STOMP heartbeats) and is filed in
+ * a DeadlineWheel under its deadline; a sweep re-files sessions that were active since and expires the
+ * rest. Register, unregister and expiry report whether the user's aggregate state changed, which is the
+ * only time presence needs to be broadcast.
+ */
+@Component
+public class PresenceSessionRegistry {
+    @Value("${presence.session-timeout:60000}")
+    private long sessionTimeoutMs;
+
+    @Value("${presence.sweep-interval:5000}")
+    private long tickMs;
+
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+
+    private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
+
+    private DeadlineWheel<String> wheel;
+
+    @PostConstruct
+    void init() {
+        wheel = new DeadlineWheel<>(tickMs);
+    }
+
+    /**
+     * Returns true if this is the user's first live session.
+     */
+    public boolean register(String sessionId, Long userId) {
+        long now = System.currentTimeMillis();
+        SessionEntry entry = new SessionEntry(userId, now);
+        if (sessions.putIfAbsent(sessionId, entry) != null) {
+            return false;
+        }
+        wheel.schedule(sessionId, now + sessionTimeoutMs);
+        return sessionCounts.merge(userId, 1, Integer::sum) == 1;
+    }
+
+    /**
+     * Returns the user id if this was the user's last live session, otherwise null.
+     */
+    public Long unregister(String sessionId) {
+        SessionEntry entry = sessions.remove(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        return release(entry.userId) ? entry.userId : null;
+    }
+
+    /**
+     * Frames of a session that is not registered are ignored: either CONNECT has not been handled yet,
+     * or the session expired and is being closed.
+     */
+    public void touch(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastActivityMs = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Expires sessions with no inbound frame within the timeout. Returns the expired sessions, which the
+     * caller must close, and the users that went offline.
+     */
+    public Expired expireStale() {
+        long now = System.currentTimeMillis();
+        List<String> expiredSessions = new ArrayList<>();
+        List<Long> wentOffline = new ArrayList<>();
+
+        wheel.sweep(now, sessionId -> {
+            SessionEntry entry = sessions.get(sessionId);
+            if (entry == null) {
+                return DeadlineWheel.DONE;
+            }
+            long deadline = entry.lastActivityMs + sessionTimeoutMs;
+            if (deadline > now) {
+                return deadline;
+            }
+            if (sessions.remove(sessionId, entry)) {
+                expiredSessions.add(sessionId);
+                if (release(entry.userId)) {
+                    wentOffline.add(entry.userId);
+                }
+            }
+            return DeadlineWheel.DONE;
+        });
+        return new Expired(expiredSessions, wentOffline);
+    }
+
+    private boolean release(Long userId) {
+        boolean[] last = new boolean[1];
+        sessionCounts.computeIfPresent(userId, (id, count) -> {
+            if (count <= 1) {
+                last[0] = true;
+                return null;
+            }
+            return count - 1;
+        });
+        return last[0];
+    }
+
+    public record Expired(List<String> sessionIds, List<Long> offlineUserIds) {
+    }
+
+    private static final class SessionEntry {
+        private final Long userId;
+        private volatile long lastActivityMs;
+
+        private SessionEntry(Long userId, long lastActivityMs) {
+            this.userId = userId;
+            this.lastActivityMs = lastActivityMs;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.socialchat.service;
+
+/**
+ * A committed change to a user's profile fields or account status, as seen by every node.
+ */
+public record ProfileEvent(long userId) {
+}
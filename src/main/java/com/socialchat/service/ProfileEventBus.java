@@ -0,0 +1,16 @@
+package com.socialchat.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Propagates profile changes to the UserProfileCache of every node.
+ *
+ * Publishers call publish inside the transaction that changes the user; local subscribers are notified
+ * once it commits. The active implementation is selected with websocket.profile-cache.bus (in-process
+ * or db-polling).
+ */
+public interface ProfileEventBus {
+    void publish(ProfileEvent event);
+
+    void subscribe(Consumer<ProfileEvent> listener);
+}
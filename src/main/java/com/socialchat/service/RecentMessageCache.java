@@ -0,0 +1,272 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.MessageDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring buffer of the newest chat.recent-cache.messages-per-conversation messages of each hot conversation.
+ *
+ * A ring holds a contiguous run of sequence numbers ending at its newest message. It is filled from
+ * the first-page query on a miss and extended with each committed message (REST sends after commit,
+ * STOMP messages once their batch is stored); a message that would leave a gap drops the ring
+ * instead. A read is served only when the ring's newest seq equals the conversation's last_seq read
+ * in the same transaction, so a ring that missed a message is never served.
+ *
+ * Each ring is guarded by its own monitor, so reads and appends for different conversations do not
+ * contend; the map of rings is concurrent. A ring removed from the map is marked retired under its
+ * lock, and a caller still holding it then treats it as missing. Each access stamps the ring, and once
+ * the estimated size passes chat.recent-cache.max-bytes one caller at a time evicts the least recently
+ * used rings until the cache is back under 90% of it, so a full cache sorts its rings once per turnover
+ * of that margin rather than on every append.
+ *
+ * Messages are stored without per-viewer read state; callers derive it from the read watermarks.
+ * The chat.recent.cache counter, tagged by result, gives the hit rate.
+ */
+@Component
+public class RecentMessageCache {
+    private static final long MESSAGE_OVERHEAD_BYTES = 160;
+    private static final double TRIM_TARGET = 0.9;
+    private static final Comparator<MessageDto> NEWEST_FIRST = Comparator.comparing(MessageDto::getCreatedAt)
+            .thenComparing(MessageDto::getId)
+            .reversed();
+
+    private final int messagesPerConversation;
+    private final long maxBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ReentrantLock trimLock = new ReentrantLock();
+
+    public RecentMessageCache(@Value("${chat.recent-cache.messages-per-conversation:50}") int messagesPerConversation,
+                              @Value("${chat.recent-cache.max-bytes:67108864}") long maxBytes,
+                              MeterRegistry meterRegistry) {
+        this.messagesPerConversation = messagesPerConversation;
+        this.maxBytes = maxBytes;
+        this.hits = meterRegistry.counter("chat.recent.cache", "result", "hit");
+        this.misses = meterRegistry.counter("chat.recent.cache", "result", "miss");
+        Gauge.builder("chat.recent.cache.bytes", usedBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("chat.recent.cache.conversations", rings, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns up to count + 1 newest messages, newest first, in the order of the first-page query, or
+     * null if the ring is missing, behind lastSeq, or too short to answer a page of count messages.
+     */
+    public List<MessageDto> newest(Long conversationId, long lastSeq, int count) {
+        Ring ring = rings.get(conversationId);
+        List<MessageDto> result = null;
+        if (ring != null) {
+            synchronized (ring) {
+                if (!ring.retired && ring.newestSeq == lastSeq && (ring.size > count || ring.complete)) {
+                    int take = Math.min(ring.size, count + 1);
+                    result = new ArrayList<>(take);
+                    for (int i = 0; i < take; i++) {
+                        result.add(ring.fromNewest(i));
+                    }
+                }
+            }
+            ring.lastAccess = System.nanoTime();
+        }
+
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Replaces the ring with a first-page query result. complete tells that the conversation has no
+     * older messages than these. Only the contiguous run of seqs ending at lastSeq is kept. A ring that
+     * is already ahead of lastSeq, or ends at it and holds at least as many messages, is left alone.
+     */
+    public void fill(Long conversationId, List<MessageDto> messages, long lastSeq, boolean complete) {
+        List<MessageDto> bySeq = new ArrayList<>(messages);
+        bySeq.sort(Comparator.comparing(MessageDto::getSeq).reversed());
+        if (!bySeq.isEmpty() && bySeq.get(0).getSeq() != lastSeq) {
+            return;
+        }
+
+        int run = 0;
+        while (run < bySeq.size() && run < messagesPerConversation
+                && bySeq.get(run).getSeq() == lastSeq - run) {
+            run++;
+        }
+        boolean runComplete = complete && run == bySeq.size();
+
+        Ring current = rings.get(conversationId);
+        if (current != null && current.covers(lastSeq, run, runComplete)) {
+            return;
+        }
+
+        Ring ring = new Ring(messagesPerConversation, lastSeq, runComplete);
+        for (int i = run - 1; i >= 0; i--) {
+            ring.add(bySeq.get(i));
+        }
+        ring.lastAccess = System.nanoTime();
+
+        // Published and counted under the new ring's lock, so an eviction racing with the put sees its bytes
+        synchronized (ring) {
+            boolean published = current == null
+                    ? rings.putIfAbsent(conversationId, ring) == null
+                    : rings.replace(conversationId, current, ring);
+            if (!published) {
+                return;
+            }
+            usedBytes.addAndGet(ring.bytes);
+        }
+        if (current != null) {
+            retire(current);
+        }
+        trim();
+    }
+
+    /**
+     * Appends a committed message to the conversation's ring, if the conversation is hot.
+     */
+    public void append(Long conversationId, MessageDto message) {
+        Ring ring = rings.get(conversationId);
+        if (ring == null || message.getSeq() == null) {
+            return;
+        }
+
+        boolean gap;
+        synchronized (ring) {
+            if (ring.retired || message.getSeq() <= ring.newestSeq) {
+                return;
+            }
+            gap = message.getSeq() != ring.newestSeq + 1;
+            if (!gap) {
+                long before = ring.bytes;
+                ring.add(message);
+                usedBytes.addAndGet(ring.bytes - before);
+            }
+        }
+
+        if (gap) {
+            remove(conversationId, ring);
+        } else {
+            ring.lastAccess = System.nanoTime();
+            trim();
+        }
+    }
+
+    public void evict(Long conversationId) {
+        Ring removed = rings.remove(conversationId);
+        if (removed != null) {
+            retire(removed);
+        }
+    }
+
+    private void remove(Long conversationId, Ring ring) {
+        if (rings.remove(conversationId, ring)) {
+            retire(ring);
+        }
+    }
+
+    private void retire(Ring ring) {
+        synchronized (ring) {
+            if (!ring.retired) {
+                ring.retired = true;
+                usedBytes.addAndGet(-ring.bytes);
+            }
+        }
+    }
+
+    private void trim() {
+        if (usedBytes.get() <= maxBytes || !trimLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = (long) (maxBytes * TRIM_TARGET);
+            // Stamps keep changing under concurrent reads, so sort a snapshot of them
+            List<Candidate> byAccess = new ArrayList<>(rings.size());
+            rings.forEach((conversationId, ring) -> byAccess.add(new Candidate(conversationId, ring, ring.lastAccess)));
+            byAccess.sort(Comparator.comparingLong(Candidate::lastAccess));
+            Iterator<Candidate> eldest = byAccess.iterator();
+            while (usedBytes.get() > target && eldest.hasNext()) {
+                Candidate candidate = eldest.next();
+                remove(candidate.conversationId(), candidate.ring());
+            }
+        } finally {
+            trimLock.unlock();
+        }
+    }
+
+    private static long estimateBytes(MessageDto message) {
+        return MESSAGE_OVERHEAD_BYTES + 2L * (length(message.getContent())
+                + length(message.getSenderUsername()) + length(message.getSenderPhotoUrl()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private record Candidate(Long conversationId, Ring ring, long lastAccess) {
+    }
+
+    private static final class Ring {
+        private final MessageDto[] slots;
+        private int head; // index of the oldest message
+        private int size;
+        private long newestSeq;
+        private boolean complete; // holds every message of the conversation
+        private long bytes;
+        private boolean retired; // removed from the cache; holders treat it as missing
+        private volatile long lastAccess;
+
+        private Ring(int capacity, long newestSeq, boolean complete) {
+            this.slots = new MessageDto[capacity];
+            this.newestSeq = newestSeq;
+            this.complete = complete;
+        }
+
+        // Callers add in seq order; once full, the oldest message is overwritten
+        private void add(MessageDto message) {
+            if (size == slots.length) {
+                bytes -= estimateBytes(slots[head]);
+                slots[head] = message;
+                head = (head + 1) % slots.length;
+                complete = false;
+            } else {
+                slots[(head + size) % slots.length] = message;
+                size++;
+            }
+            bytes += estimateBytes(message);
+            newestSeq = Math.max(newestSeq, message.getSeq());
+        }
+
+        // Whether this ring already answers everything a fill ending at lastSeq with run messages would
+        private synchronized boolean covers(long lastSeq, int run, boolean runComplete) {
+            if (retired) {
+                return false;
+            }
+            if (newestSeq != lastSeq) {
+                return newestSeq > lastSeq;
+            }
+            return size >= run && (complete || !runComplete);
+        }
+
+        private MessageDto fromNewest(int index) {
+            return slots[(head + size - 1 - index) % slots.length];
+        }
+    }
+}
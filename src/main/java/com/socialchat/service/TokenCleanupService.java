@@ -1,6 +1,7 @@
 package com.socialchat.service;
 
 import com.socialchat.repository.TokenRevocationRepository;
+import com.socialchat.security.TokenRevocationCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -13,6 +14,7 @@ import java.time.LocalDateTime;
 @Slf4j
 public class TokenCleanupService {
     private final TokenRevocationRepository tokenRevocationRepository;
+    private final TokenRevocationCache tokenRevocationCache;
 
     /**
      * Scheduled task to clean up expired tokens from the database.
@@ -30,15 +32,18 @@ public class TokenCleanupService {
      * - Deleting expired revocations has no security impact because:
      *   1. The JWT itself is already expired and won't be accepted
      *   2. An attacker can't use an expired JWT regardless of revocation list
+     * - The in-memory revocation filter is pruned in the same pass
      */
     @Scheduled(fixedDelayString = "${token.cleanup.interval:21600000}")  // 6 hours by default (21600000 ms)
     public void cleanupExpiredTokens() {
         try {
             LocalDateTime now = LocalDateTime.now();
             int deletedCount = tokenRevocationRepository.deleteExpiredTokens(now);
+            int prunedCount = tokenRevocationCache.pruneExpired();
             
-            if (deletedCount > 0) {
-                log.info("Token cleanup completed: {} expired revocation records deleted", deletedCount);
+            if (deletedCount > 0 || prunedCount > 0) {
+                log.info("Token cleanup completed: {} expired revocation records deleted, {} filter entries pruned",
+                        deletedCount, prunedCount);
             }
         } catch (Exception e) {
             log.error("Error during token cleanup", e);
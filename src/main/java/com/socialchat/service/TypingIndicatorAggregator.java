@@ -0,0 +1,151 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.TypingIndicatorDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces typing indicator frames per (conversation, user) before they are fanned out.
+ *
+ * Only started/stopped transitions are forwarded, plus at most one "still typing" refresh per
+ * typing.refresh-interval. A user who stops sending frames is reported as stopped after
+ * typing.timeout. Expiry runs on one DeadlineWheel shared by all conversations, swept every
+ * typing.tick-interval. The typing.indicator.frames counter, tagged by outcome, shows how many
+ * received frames were forwarded versus suppressed.
+ */
+@Component
+@Slf4j
+public class TypingIndicatorAggregator {
+    private final WebSocketEventService eventService;
+
+    private final Counter receivedFrames;
+    private final Counter forwardedFrames;
+    private final Counter suppressedFrames;
+    private final Counter expiredFrames;
+
+    @Value("${typing.refresh-interval:3000}")
+    private long refreshIntervalMs;
+
+    @Value("${typing.timeout:5000}")
+    private long timeoutMs;
+
+    @Value("${typing.tick-interval:500}")
+    private long tickMs;
+
+    private final Map<TypingKey, TypingState> states = new ConcurrentHashMap<>();
+
+    private DeadlineWheel<TypingKey> wheel;
+
+    public TypingIndicatorAggregator(WebSocketEventService eventService, MeterRegistry meterRegistry) {
+        this.eventService = eventService;
+        this.receivedFrames = meterRegistry.counter("typing.indicator.frames", "outcome", "received");
+        this.forwardedFrames = meterRegistry.counter("typing.indicator.frames", "outcome", "forwarded");
+        this.suppressedFrames = meterRegistry.counter("typing.indicator.frames", "outcome", "suppressed");
+        this.expiredFrames = meterRegistry.counter("typing.indicator.frames", "outcome", "expired");
+    }
+
+    @PostConstruct
+    void init() {
+        wheel = new DeadlineWheel<>(tickMs);
+    }
+
+    public void onIndicator(TypingIndicatorDto indicator) {
+        receivedFrames.increment();
+        TypingKey key = new TypingKey(indicator.getConversationId(), indicator.getUserId());
+        long now = System.currentTimeMillis();
+
+        boolean forward;
+        if (indicator.isTyping()) {
+            boolean[] send = new boolean[1];
+            states.compute(key, (k, state) -> {
+                if (state == null) {
+                    send[0] = true;
+                    wheel.schedule(k, now + timeoutMs);
+                    return new TypingState(indicator.getUsername(), now, now);
+                }
+                state.lastActivityMs = now;
+                if (now - state.lastForwardMs >= refreshIntervalMs) {
+                    state.lastForwardMs = now;
+                    send[0] = true;
+                }
+                return state;
+            });
+            forward = send[0];
+        } else {
+            forward = states.remove(key) != null;
+        }
+
+        if (forward) {
+            forwardedFrames.increment();
+            eventService.broadcastTypingIndicator(indicator);
+        } else {
+            suppressedFrames.increment();
+        }
+    }
+
+    /**
+     * Ends the user's typing state, e.g. once their message has been sent.
+     */
+    public void stopTyping(Long conversationId, Long userId) {
+        TypingState state = states.remove(new TypingKey(conversationId, userId));
+        if (state != null) {
+            broadcastStopped(conversationId, userId, state.username);
+        }
+    }
+
+    /**
+     * Visits only the wheel ticks that came due: states refreshed since are re-filed, the rest expire.
+     */
+    @Scheduled(fixedDelayString = "${typing.tick-interval:500}")
+    public void expireIdle() {
+        long now = System.currentTimeMillis();
+        wheel.sweep(now, key -> {
+            TypingState state = states.get(key);
+            if (state == null) {
+                return DeadlineWheel.DONE;
+            }
+            long deadline = state.lastActivityMs + timeoutMs;
+            if (deadline > now) {
+                return deadline;
+            }
+            if (states.remove(key, state)) {
+                expiredFrames.increment();
+                broadcastStopped(key.conversationId(), key.userId(), state.username);
+            }
+            return DeadlineWheel.DONE;
+        });
+    }
+
+    private void broadcastStopped(Long conversationId, Long userId, String username) {
+        forwardedFrames.increment();
+        eventService.broadcastTypingIndicator(TypingIndicatorDto.builder()
+                .conversationId(conversationId)
+                .userId(userId)
+                .username(username)
+                .isTyping(false)
+                .build());
+    }
+
+    private record TypingKey(Long conversationId, Long userId) {
+    }
+
+    private static final class TypingState {
+        private final String username;
+        private volatile long lastForwardMs;
+        private volatile long lastActivityMs;
+
+        private TypingState(String username, long lastForwardMs, long lastActivityMs) {
+            this.username = username;
+            this.lastForwardMs = lastForwardMs;
+            this.lastActivityMs = lastActivityMs;
+        }
+    }
+}
@@ -1,19 +1,39 @@
 package com.socialchat.service;
 
 import com.socialchat.dto.UserPresenceDto;
-import com.socialchat.entity.User;
 import com.socialchat.entity.UserPresence;
-import com.socialchat.mapper.UserPresenceMapper;
 import com.socialchat.repository.UserPresenceRepository;
-import com.socialchat.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Presence is served from an in-memory registry, with profile fields taken from UserProfileCache.
+ * A user's entry is loaded from user_presence the first time it is needed; after that, status
+ * changes only touch memory and mark the user dirty.
+ * Dirty users are written back in one batched upsert every presence.flush-interval, so any number of
+ * online/offline flips within a window costs a single row write.
+ * After each flush, offline entries that have nothing left to write are dropped, so the registry holds
+ * the online users plus whatever was read or changed since the last flush; a dropped user is loaded
+ * again on next use. A user is marked dirty inside the registry update itself, so the eviction cannot
+ * drop a change that has not been flushed.
+ *
+ * Whether a user is online is decided by the PresenceDirectory, which spans every node: the node whose
+ * session change flips the user announces it to friends and writes it back, and the other nodes apply
+ * the change to their registries without repeating either.
+ */
 @Service
 @Slf4j
 public class UserPresenceService {
@@ -21,59 +41,227 @@ public class UserPresenceService {
     private UserPresenceRepository userPresenceRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserProfileCache userProfileCache;
 
     @Autowired
-    private WebSocketEventService webSocketEventService;
+    private PresenceFanoutService presenceFanoutService;
+
+    @Autowired
+    private FriendAdjacencyIndex friendAdjacencyIndex;
+
+    @Autowired
+    private PresenceDirectory presenceDirectory;
+
+    private final Map<Long, PresenceEntry> registry = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyUserIds = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        presenceDirectory.subscribe(this::apply);
+    }
+
+    /**
+     * Called when this node gains its first or loses its last live session of the user; the user's
+     * status only changes if no other node has a session either.
+     */
+    public void onLocalSessions(Long userId, boolean connected) {
+        Boolean online = presenceDirectory.update(userId, connected);
+        if (online != null) {
+            setStatus(userId, online, true);
+        }
+    }
 
-    @Transactional
     public UserPresenceDto setUserOnline(Long userId, boolean online) {
-        User user = userRepository.findByIdAndIsDeletedFalse(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-        UserPresence presence = userPresenceRepository.findByUserId(userId)
-                .orElseGet(() -> UserPresence.builder()
-                        .user(user)
-                        .isOnline(false)
-                        .lastSeen(LocalDateTime.now())
-                        .build());
+        return setStatus(userId, online, false);
+    }
 
-        presence.setIsOnline(online);
-        presence.setLastSeen(LocalDateTime.now());
-        presence = userPresenceRepository.save(presence);
+    /**
+     * decided: the directory reported this as a transition. It is announced even if the registry already
+     * shows it, because the registry may have loaded or been sent the new state first.
+     */
+    private UserPresenceDto setStatus(Long userId, boolean online, boolean decided) {
+        UserSnapshot profile = profileOf(userId);
+        PresenceEntry loaded = getOrLoad(userId);
 
-        UserPresenceDto dto = UserPresenceMapper.convertToDto(presence);
-        
-        webSocketEventService.broadcastPresence(dto);
-        log.info("User {} presence set to online: {}", userId, online);
+        LocalDateTime now = LocalDateTime.now();
+        boolean[] changed = new boolean[1];
+        PresenceEntry entry = registry.compute(userId, (id, current) -> {
+            PresenceEntry previous = current != null ? current : loaded;
+            changed[0] = decided || previous.online() != online;
+            dirtyUserIds.add(id);
+            return previous.withStatus(online, now);
+        });
+
+        UserPresenceDto dto = entry.toDto(profile);
+
+        // Repeated online/offline calls only refresh last seen; friends hear about real transitions
+        if (changed[0]) {
+            presenceFanoutService.onPresenceChanged(dto);
+            if (!decided) {
+                presenceDirectory.publish(new PresenceEvent(userId, online));
+            }
+            log.info("User {} presence set to online: {}", userId, online);
+        }
         
         return dto;
     }
 
     public UserPresenceDto getUserPresence(Long userId) {
-        User user = userRepository.findByIdAndIsDeletedFalse(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-        UserPresence presence = userPresenceRepository.findByUserId(userId)
-                .orElseGet(() -> UserPresence.builder()
-                        .user(user)
-                        .isOnline(false)
-                        .lastSeen(LocalDateTime.now())
-                        .build());
+        UserSnapshot profile = profileOf(userId);
+        return getOrLoad(userId).toDto(profile);
+    }
 
-        return UserPresenceMapper.convertToDto(presence);
+    /**
+     * Current presence of the user's friends that are online, served from memory.
+     */
+    public List<UserPresenceDto> getOnlineFriends(Long userId) {
+        List<UserPresenceDto> online = new ArrayList<>();
+        for (Long friendId : friendAdjacencyIndex.friendsOf(userId)) {
+            PresenceEntry entry = registry.get(friendId);
+            UserSnapshot profile = entry != null && entry.online() ? userProfileCache.get(friendId) : null;
+            if (profile != null) {
+                online.add(entry.toDto(profile));
+            }
+        }
+        return online;
     }
 
     public boolean isUserOnline(Long userId) {
-        Optional<UserPresence> presence = userPresenceRepository.findByUserId(userId);
-        return presence.map(UserPresence::getIsOnline).orElse(false);
+        PresenceEntry entry = registry.get(userId);
+        if (entry != null) {
+            return entry.online();
+        }
+        return userProfileCache.get(userId) != null && getOrLoad(userId).online();
     }
 
-    @Transactional
     public void updateLastSeen(Long userId) {
-        userPresenceRepository.findByUserId(userId).ifPresent(presence -> {
-            presence.setLastSeen(LocalDateTime.now());
-            userPresenceRepository.save(presence);
+        registry.computeIfPresent(userId, (id, current) -> {
+            dirtyUserIds.add(id);
+            return current.withStatus(current.online(), LocalDateTime.now());
+        });
+    }
+
+    /**
+     * A change decided by any node, this one included. Only the registry follows it: the deciding node
+     * has already told friends and marked the user for write-back.
+     */
+    private void apply(PresenceEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        registry.compute(event.userId(), (id, current) -> {
+            if (current == null) {
+                return event.online() ? new PresenceEntry(true, now) : null;
+            }
+            return current.online() == event.online() ? current : current.withStatus(event.online(), now);
         });
     }
+
+    /**
+     * Users whose only sessions were on a node that stopped heartbeating go offline here.
+     */
+    @Scheduled(fixedDelayString = "${presence.node-heartbeat-interval:10000}")
+    public void releaseDeadNodes() {
+        try {
+            for (Long userId : presenceDirectory.releaseDeadNodes()) {
+                setStatus(userId, false, true);
+            }
+        } catch (Exception e) {
+            log.error("Error releasing presence of dead nodes", e);
+        }
+    }
+
+    /**
+     * Writes every user whose presence changed since the last flush. An id is removed from the dirty
+     * set before its entry is read, so a change racing with the flush is picked up by the next one.
+     */
+    @Scheduled(fixedDelayString = "${presence.flush-interval:5000}")
+    public void flushDirty() {
+        if (!dirtyUserIds.isEmpty()) {
+            writeDirty();
+        }
+        evictClean();
+    }
+
+    private void writeDirty() {
+        List<UserPresenceDto> batch = new ArrayList<>();
+        Iterator<Long> it = dirtyUserIds.iterator();
+        while (it.hasNext()) {
+            Long userId = it.next();
+            it.remove();
+            PresenceEntry entry = registry.get(userId);
+            if (entry != null) {
+                batch.add(UserPresenceDto.builder()
+                        .userId(userId)
+                        .online(entry.online())
+                        .lastSeen(entry.lastSeen())
+                        .build());
+            }
+        }
+
+        try {
+            userPresenceRepository.upsertAll(batch);
+            log.debug("Flushed presence for {} users", batch.size());
+        } catch (Exception e) {
+            batch.forEach(dto -> dirtyUserIds.add(dto.getUserId()));
+            log.error("Error flushing presence for {} users, will retry", batch.size(), e);
+        }
+    }
+
+    /**
+     * Drops offline entries whose state is already in user_presence. Runs inside each entry's bin lock,
+     * so it cannot interleave with a status change, which marks the user dirty before releasing it.
+     */
+    private void evictClean() {
+        int before = registry.size();
+        for (Long userId : registry.keySet()) {
+            registry.computeIfPresent(userId,
+                    (id, entry) -> entry.online() || dirtyUserIds.contains(id) ? entry : null);
+        }
+        log.debug("Evicted {} offline presence entries", before - registry.size());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushDirty();
+    }
+
+    private UserSnapshot profileOf(Long userId) {
+        UserSnapshot profile = userProfileCache.get(userId);
+        if (profile == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return profile;
+    }
+
+    private PresenceEntry getOrLoad(Long userId) {
+        PresenceEntry entry = registry.get(userId);
+        if (entry != null) {
+            return entry;
+        }
+
+        // The stored flag lags behind and outlives a crash; the directory knows who has sessions now
+        Optional<UserPresence> presence = userPresenceRepository.findByUserId(userId);
+        PresenceEntry loaded = new PresenceEntry(
+                presenceDirectory.isOnline(userId),
+                presence.map(UserPresence::getLastSeen).orElseGet(LocalDateTime::now));
+        return registry.merge(userId, loaded, (current, fresh) -> current);
+    }
+
+    // Profile fields come from UserProfileCache so profile edits show up without touching the registry
+    private record PresenceEntry(boolean online, LocalDateTime lastSeen) {
+        PresenceEntry withStatus(boolean online, LocalDateTime lastSeen) {
+            return new PresenceEntry(online, lastSeen);
+        }
+
+        UserPresenceDto toDto(UserSnapshot profile) {
+            return UserPresenceDto.builder()
+                    .userId(profile.id())
+                    .username(profile.username())
+                    .displayName(profile.displayName())
+                    .profilePhotoUrl(profile.profilePhotoUrl())
+                    .online(online)
+                    .lastSeen(lastSeen)
+                    .build();
+        }
+    }
 }
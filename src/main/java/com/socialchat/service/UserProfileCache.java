@@ -0,0 +1,119 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.User;
+import com.socialchat.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared, bounded cache of UserSnapshots.
+ *
+ * WebSocket sessions copy their user's snapshot into the session attributes at CONNECT so the frame
+ * path reads it without any lookup. Sessions are tracked per user, and refresh() replaces both the
+ * cached snapshot and the copy held by every live session of that user.
+ *
+ * Profile edits and deletions arrive through the ProfileEventBus, from this node on commit and from
+ * other nodes within the bus's poll interval, and reload the user from the database. A snapshot loaded
+ * by a get() miss is only stored if no other snapshot got there first, so a miss that read the row
+ * before an edit cannot overwrite the refreshed snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserProfileCache {
+    public static final String SESSION_ATTRIBUTE = "userSnapshot";
+
+    private final UserRepository userRepository;
+    private final ProfileEventBus profileEventBus;
+
+    @Value("${websocket.profile-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<Long, UserSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    // userId -> sessionId -> that session's attribute map
+    private final Map<Long, Map<String, Map<String, Object>>> liveSessions = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        profileEventBus.subscribe(event -> reload(event.userId()));
+    }
+
+    /**
+     * Returns the user's snapshot, loading it on a miss, or null if the user does not exist.
+     */
+    public UserSnapshot get(Long userId) {
+        UserSnapshot snapshot = snapshots.get(userId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        return userRepository.findByIdAndIsDeletedFalse(userId)
+                .map(UserSnapshot::of)
+                .map(loaded -> put(loaded, false))
+                .orElse(null);
+    }
+
+    public void attachSession(String sessionId, UserSnapshot snapshot, Map<String, Object> sessionAttributes) {
+        sessionAttributes.put(SESSION_ATTRIBUTE, snapshot);
+        sessionUsers.put(sessionId, snapshot.id());
+        liveSessions.computeIfAbsent(snapshot.id(), id -> new ConcurrentHashMap<>()).put(sessionId, sessionAttributes);
+    }
+
+    public void detachSession(String sessionId) {
+        Long userId = sessionUsers.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        liveSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    public void refresh(User user) {
+        UserSnapshot snapshot = put(UserSnapshot.of(user), true);
+        Map<String, Map<String, Object>> sessions = liveSessions.get(user.getId());
+        if (sessions != null) {
+            sessions.values().forEach(attributes -> attributes.put(SESSION_ATTRIBUTE, snapshot));
+            log.debug("Refreshed profile snapshot on {} live sessions of user {}", sessions.size(), user.getId());
+        }
+    }
+
+    public void evict(Long userId) {
+        snapshots.remove(userId);
+    }
+
+    private void reload(long userId) {
+        userRepository.findByIdAndIsDeletedFalse(userId)
+                .ifPresentOrElse(this::refresh, () -> evict(userId));
+    }
+
+    // Returns the snapshot now cached: the given one, or the one already there when replace is false
+    private UserSnapshot put(UserSnapshot snapshot, boolean replace) {
+        if (snapshots.size() >= maxSize && !snapshots.containsKey(snapshot.id())) {
+            // Live sessions keep their own copy, so dropping arbitrary entries only costs a reload
+            Iterator<Long> it = snapshots.keySet().iterator();
+            for (int i = 0; i < maxSize / 10 + 1 && it.hasNext(); i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        if (replace) {
+            snapshots.put(snapshot.id(), snapshot);
+            return snapshot;
+        }
+        UserSnapshot current = snapshots.putIfAbsent(snapshot.id(), snapshot);
+        return current != null ? current : snapshot;
+    }
+}
@@ -16,6 +16,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ProfileEventBus profileEventBus;
+
     public UserDto getUserById(Long userId) {
         User user = userRepository.findByIdAndIsDeletedFalse(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -44,8 +47,9 @@ public class UserService {
             user.setBio(request.getBio());
         }
 
-        user = userRepository.save(user);
-        return UserMapper.convertToDto(user);
+        User saved = userRepository.save(user);
+        profileEventBus.publish(new ProfileEvent(userId));
+        return UserMapper.convertToDto(saved);
     }
 
     @Transactional
@@ -55,6 +59,7 @@ public class UserService {
 
         user.setProfilePhotoUrl(photoUrl);
         userRepository.save(user);
+        profileEventBus.publish(new ProfileEvent(userId));
     }
 
     @Transactional
@@ -64,5 +69,6 @@ public class UserService {
 
         user.setIsDeleted(true);
         userRepository.save(user);
+        profileEventBus.publish(new ProfileEvent(userId));
     }
 }
@@ -0,0 +1,12 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.User;
+
+/**
+ * Immutable copy of the profile fields stamped onto real-time events.
+ */
+public record UserSnapshot(Long id, String username, String displayName, String profilePhotoUrl) {
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getUsername(), user.getDisplayName(), user.getProfilePhotoUrl());
+    }
+}
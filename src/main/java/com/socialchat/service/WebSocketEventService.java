@@ -1,37 +1,168 @@
 package com.socialchat.service;
 
+import com.socialchat.dto.ConversationDto;
+import com.socialchat.dto.ConversationSyncDto;
+import com.socialchat.dto.MessageAckDto;
 import com.socialchat.dto.NotificationDto;
 import com.socialchat.dto.UserPresenceDto;
 import com.socialchat.dto.TypingIndicatorDto;
 import com.socialchat.dto.WebSocketMessageDto;
+import com.socialchat.entity.Message;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketEventService {
     private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+    private final MembershipEventBus membershipEventBus;
 
+    private static final String CONVERSATION_TOPIC_PREFIX = "/topic/conversation/";
+
+    @PostConstruct
+    void subscribeToMembershipChanges() {
+        membershipEventBus.subscribe(event -> {
+            if (event.removedUserId() != null) {
+                dropConversationSubscriptions(event.removedUserId(), event.conversationId());
+            }
+        });
+    }
+
+    /**
+     * Published once to the conversation topic whatever the group size: the broker fans the frame out
+     * to the subscribed sessions, and subscriptions to a conversation topic are limited to its members.
+     */
     public void broadcastMessage(WebSocketMessageDto message) {
         String destination = "/topic/conversation/" + message.getConversationId();
         messagingTemplate.convertAndSend(destination, message);
         log.info("Message broadcasted to {}", destination);
     }
 
+    /**
+     * Tells each conversation the id and sequence number its live messages were stored with.
+     */
+    public void broadcastMessageCommits(List<Message> messages) {
+        for (Message message : messages) {
+            WebSocketMessageDto commit = WebSocketMessageDto.builder()
+                    .type("COMMITTED")
+                    .id(message.getId())
+                    .seq(message.getSeq())
+                    .clientMessageId(message.getClientMessageId())
+                    .conversationId(message.getConversation().getId())
+                    .senderId(message.getSender().getId())
+                    .createdAt(message.getCreatedAt())
+                    .build();
+            messagingTemplate.convertAndSend("/topic/conversation/" + commit.getConversationId(), commit);
+        }
+    }
+
+    /**
+     * Tells each conversation that a live message it was sent could not be stored and will not get a
+     * seq; the sender may resend it under a new client message id.
+     */
+    public void broadcastMessageRejections(List<Message> messages) {
+        for (Message message : messages) {
+            WebSocketMessageDto rejection = WebSocketMessageDto.builder()
+                    .type("REJECTED")
+                    .clientMessageId(message.getClientMessageId())
+                    .conversationId(message.getConversation().getId())
+                    .senderId(message.getSender().getId())
+                    .createdAt(message.getCreatedAt())
+                    .build();
+            messagingTemplate.convertAndSend("/topic/conversation/" + rejection.getConversationId(), rejection);
+        }
+    }
+
+    /**
+     * One receipt per read: the reader has read every message up to lastReadMessageId.
+     */
+    public void broadcastReadReceipt(Long conversationId, Long readerId, Long lastReadMessageId) {
+        WebSocketMessageDto receipt = WebSocketMessageDto.builder()
+                .type("READ")
+                .id(lastReadMessageId)
+                .conversationId(conversationId)
+                .senderId(readerId)
+                .createdAt(LocalDateTime.now())
+                .build();
+        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, receipt);
+    }
+
+    /**
+     * Tells each added member about the group on /user/queue/conversations so their clients can
+     * subscribe to it. Per-member sends happen only on membership changes, never per message.
+     */
+    public void notifyMembersAdded(Collection<Long> memberIds, ConversationDto conversation) {
+        for (Long memberId : memberIds) {
+            messagingTemplate.convertAndSendToUser(memberId.toString(), "/queue/conversations", conversation);
+        }
+        log.debug("Notified {} members of conversation {}", memberIds.size(), conversation.getId());
+    }
+
+    /**
+     * Tells a member who left a group on /user/queue/conversations/left, so their other devices stop
+     * showing it; the server has already dropped their subscriptions to it.
+     */
+    public void notifyMemberLeft(Long userId, Long conversationId) {
+        WebSocketMessageDto left = WebSocketMessageDto.builder()
+                .type("LEFT")
+                .conversationId(conversationId)
+                .senderId(userId)
+                .createdAt(LocalDateTime.now())
+                .build();
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/conversations/left", left);
+    }
+
+    /**
+     * Unsubscribes this node's sessions of the user from the conversation topic and its typing topic.
+     * Subscribing is checked against membership, but an existing subscription would otherwise keep
+     * receiving the group's messages after the user left.
+     */
+    public void dropConversationSubscriptions(Long userId, Long conversationId) {
+        SimpUser user = simpUserRegistry.getUser(userId.toString());
+        if (user == null) {
+            return;
+        }
+        String topic = CONVERSATION_TOPIC_PREFIX + conversationId;
+        for (SimpSession session : user.getSessions()) {
+            for (SimpSubscription subscription : session.getSubscriptions()) {
+                String destination = subscription.getDestination();
+                if (!topic.equals(destination) && !destination.startsWith(topic + "/")) {
+                    continue;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+                accessor.setSessionId(session.getId());
+                accessor.setSubscriptionId(subscription.getId());
+                accessor.setDestination(destination);
+                messagingTemplate.getMessageChannel().send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+                log.debug("Dropped subscription {} of session {} to {}", subscription.getId(), session.getId(), destination);
+            }
+        }
+    }
+
     public void broadcastTypingIndicator(TypingIndicatorDto indicator) {
         String destination = "/topic/conversation/" + indicator.getConversationId() + "/typing";
         messagingTemplate.convertAndSend(destination, indicator);
     }
 
-    public void broadcastPresence(UserPresenceDto presence) {
-        String destination = "/topic/presence/" + presence.getUserId();
-        messagingTemplate.convertAndSend(destination, presence);
-        log.info("Presence broadcasted for user {}: online={}", presence.getUserId(), presence.isOnline());
+    public void sendPresenceDeltas(Long userId, List<UserPresenceDto> deltas) {
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/presence", deltas);
+        log.debug("Sent {} presence deltas to user {}", deltas.size(), userId);
     }
 
     public void broadcastNotification(NotificationDto notification) {
@@ -40,6 +171,24 @@ public class WebSocketEventService {
         log.info("Notification broadcasted to user {}", notification.getUserId());
     }
 
+    /**
+     * Sends the ack to the sending session only; the session id stands in for the user name so no
+     * authenticated Principal is required.
+     */
+    public void sendMessageAck(String sessionId, MessageAckDto ack) {
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/acks", ack, headerAccessor.getMessageHeaders());
+    }
+
+    public void sendSyncResult(String sessionId, List<ConversationSyncDto> result) {
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/sync", result, headerAccessor.getMessageHeaders());
+    }
+
     public void sendNotification(Long userId, NotificationDto notification) {
         String destination = "/queue/user/" + userId + "/notifications";
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications", notification);
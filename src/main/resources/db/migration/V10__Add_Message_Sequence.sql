@@ -0,0 +1,20 @@
+-- Dense per-conversation sequence assigned at insert; clients resume with the last seq they hold
+ALTER TABLE conversations
+    ADD COLUMN last_seq BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE messages
+    ADD COLUMN seq BIGINT NULL AFTER conversation_id;
+
+-- Backfill in id order (updated_at is kept as-is)
+UPDATE messages m
+JOIN (SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY id) AS rn FROM messages) s ON s.id = m.id
+SET m.seq = s.rn;
+
+UPDATE conversations c
+SET c.last_seq = (SELECT COALESCE(MAX(m.seq), 0) FROM messages m WHERE m.conversation_id = c.id),
+    c.updated_at = c.updated_at;
+
+-- Sync reads one range of this index per conversation
+ALTER TABLE messages
+    MODIFY COLUMN seq BIGINT NOT NULL,
+    ADD UNIQUE KEY unique_conversation_seq (conversation_id, seq);
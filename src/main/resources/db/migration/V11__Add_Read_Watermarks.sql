@@ -0,0 +1,15 @@
+-- Per-participant read watermark: every message with id <= the watermark counts as read by that participant
+ALTER TABLE conversations
+    ADD COLUMN user1_last_read_id BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN user2_last_read_id BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from per-message read_at (updated_at is kept as-is)
+UPDATE conversations c
+SET c.user1_last_read_id = COALESCE((SELECT MAX(m.id) FROM messages m
+                                     WHERE m.conversation_id = c.id AND m.sender_id <> c.user1_id AND m.read_at IS NOT NULL), 0),
+    c.user2_last_read_id = COALESCE((SELECT MAX(m.id) FROM messages m
+                                     WHERE m.conversation_id = c.id AND m.sender_id <> c.user2_id AND m.read_at IS NOT NULL), 0),
+    c.updated_at = c.updated_at;
+
+ALTER TABLE messages
+    DROP COLUMN read_at;
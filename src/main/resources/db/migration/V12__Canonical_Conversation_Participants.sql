@@ -0,0 +1,81 @@
+-- Direct conversations are stored once per pair with user1_id < user2_id.
+-- Duplicates are merged into the oldest conversation of each pair.
+
+-- Snapshot of every conversation with its per-participant state in canonical orientation
+CREATE TABLE conversation_canonical AS
+SELECT c.id,
+       LEAST(c.user1_id, c.user2_id) AS low_id,
+       GREATEST(c.user1_id, c.user2_id) AS high_id,
+       IF(c.user1_id <= c.user2_id, c.user1_unread_count, c.user2_unread_count) AS low_unread,
+       IF(c.user1_id <= c.user2_id, c.user2_unread_count, c.user1_unread_count) AS high_unread,
+       IF(c.user1_id <= c.user2_id, c.user1_last_read_id, c.user2_last_read_id) AS low_last_read,
+       IF(c.user1_id <= c.user2_id, c.user2_last_read_id, c.user1_last_read_id) AS high_last_read,
+       c.created_at,
+       c.updated_at,
+       c.id AS keep_id
+FROM conversations c;
+
+ALTER TABLE conversation_canonical ADD PRIMARY KEY (id);
+
+UPDATE conversation_canonical cc
+JOIN (SELECT low_id, high_id, MIN(id) AS keep_id FROM conversation_canonical GROUP BY low_id, high_id) k
+  ON k.low_id = cc.low_id AND k.high_id = cc.high_id
+SET cc.keep_id = k.keep_id;
+
+CREATE TABLE conversation_merged AS
+SELECT DISTINCT keep_id FROM conversation_canonical WHERE id <> keep_id;
+
+ALTER TABLE conversation_merged ADD PRIMARY KEY (keep_id);
+
+-- Move messages of duplicates into the kept conversation; negative seqs avoid clashes until renumbered
+UPDATE messages m
+JOIN conversation_canonical cc ON cc.id = m.conversation_id
+JOIN conversation_merged cm ON cm.keep_id = cc.keep_id
+SET m.conversation_id = cc.keep_id,
+    m.seq = -m.id;
+
+UPDATE messages m
+JOIN (SELECT m2.id, ROW_NUMBER() OVER (PARTITION BY m2.conversation_id ORDER BY m2.id) AS rn
+      FROM messages m2 JOIN conversation_merged cm ON cm.keep_id = m2.conversation_id) s ON s.id = m.id
+SET m.seq = s.rn;
+
+-- Canonical participants for every kept conversation, with the merged per-participant state
+UPDATE conversations c
+JOIN (SELECT keep_id, MIN(low_id) AS low_id, MIN(high_id) AS high_id,
+             SUM(low_unread) AS low_unread, SUM(high_unread) AS high_unread,
+             MAX(low_last_read) AS low_last_read, MAX(high_last_read) AS high_last_read,
+             MIN(created_at) AS created_at, MAX(updated_at) AS updated_at
+      FROM conversation_canonical GROUP BY keep_id) k ON k.keep_id = c.id
+SET c.user1_id = k.low_id,
+    c.user2_id = k.high_id,
+    c.user1_unread_count = k.low_unread,
+    c.user2_unread_count = k.high_unread,
+    c.user1_last_read_id = k.low_last_read,
+    c.user2_last_read_id = k.high_last_read,
+    c.created_at = k.created_at,
+    c.updated_at = k.updated_at;
+
+UPDATE conversations c
+JOIN conversation_merged cm ON cm.keep_id = c.id
+SET c.last_seq = (SELECT COUNT(*) FROM messages m WHERE m.conversation_id = c.id),
+    c.updated_at = c.updated_at;
+
+UPDATE conversations c
+JOIN conversation_merged cm ON cm.keep_id = c.id
+JOIN messages lm ON lm.id = (SELECT MAX(m.id) FROM messages m WHERE m.conversation_id = c.id)
+SET c.last_message_id = lm.id,
+    c.last_message_preview = LEFT(lm.text, 255),
+    c.last_message_at = lm.created_at,
+    c.updated_at = c.updated_at;
+
+DELETE c FROM conversations c
+JOIN conversation_canonical cc ON cc.id = c.id
+WHERE cc.id <> cc.keep_id;
+
+DROP TABLE conversation_merged;
+DROP TABLE conversation_canonical;
+
+-- One row per pair; the unique key also serves the user1_id foreign key, so its single-column index goes
+ALTER TABLE conversations
+    ADD UNIQUE KEY unique_participants (user1_id, user2_id),
+    DROP INDEX idx_user1_id;
@@ -0,0 +1,25 @@
+-- Group conversations: participants live in conversation_members instead of user1_id/user2_id.
+-- Direct conversations keep their canonical pair and have no member rows.
+ALTER TABLE conversations
+    ADD COLUMN type VARCHAR(10) NOT NULL DEFAULT 'DIRECT' AFTER id,
+    ADD COLUMN title VARCHAR(100) NULL AFTER type,
+    MODIFY COLUMN user1_id BIGINT NULL,
+    MODIFY COLUMN user2_id BIGINT NULL;
+
+-- Per-member inbox state. The primary key clusters a group's members, so one message updates every
+-- member's unread count with a single range update; idx_user_updated serves the member's inbox in
+-- (updated_at, conversation_id) order. updated_at and last_message_id mirror the conversation's and
+-- are written by the same statement as unread_count.
+CREATE TABLE conversation_members (
+    conversation_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    unread_count INT NOT NULL DEFAULT 0,
+    last_read_id BIGINT NOT NULL DEFAULT 0,
+    last_message_id BIGINT NULL,
+    joined_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (conversation_id, user_id),
+    FOREIGN KEY (conversation_id) REFERENCES conversations(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_user_updated (user_id, updated_at, conversation_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,10 @@
+-- Group membership changes, tailed by every node to evict its membership cache and drop the
+-- subscriptions of members who left (chat.membership-cache.bus=db-polling). Rows are only read within
+-- the poll lookback window and pruned after it. No foreign keys: the conversation may already be gone.
+CREATE TABLE conversation_membership_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    conversation_id BIGINT NOT NULL,
+    removed_user_id BIGINT NULL,
+    created_at TIMESTAMP NOT NULL,
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,9 @@
+-- Profile edits and account deletions, tailed by every node to reload the user's cached snapshot and
+-- the copies held by their live sessions (websocket.profile-cache.bus=db-polling). Rows are only read
+-- within the poll lookback window and pruned after it.
+CREATE TABLE user_profile_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
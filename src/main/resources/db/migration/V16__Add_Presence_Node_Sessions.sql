@@ -0,0 +1,23 @@
+-- Cluster-wide presence (presence.directory=db-polling): which nodes hold live sessions of a user, the
+-- heartbeat that lets the other nodes release the rows of a crashed node, and the presence transitions
+-- every node tails to keep its registry current. Event rows are only read within the poll lookback
+-- window and pruned after it.
+CREATE TABLE presence_nodes (
+    node_id VARCHAR(64) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE presence_node_sessions (
+    node_id VARCHAR(64) NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (node_id, user_id),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE presence_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    online BOOLEAN NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
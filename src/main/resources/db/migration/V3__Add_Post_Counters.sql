@@ -0,0 +1,10 @@
+-- Denormalized like/comment counters so timeline mapping never loads the collections
+ALTER TABLE posts
+    ADD COLUMN like_count BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN comment_count BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from the existing rows (updated_at is kept as-is)
+UPDATE posts p
+SET p.like_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id),
+    p.comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id),
+    p.updated_at = p.updated_at;
@@ -0,0 +1,7 @@
+-- Composite indexes backing keyset pagination on (created_at, id)
+CREATE INDEX idx_public_created_id ON posts (is_public, created_at, id);
+CREATE INDEX idx_author_created_id ON posts (author_id, created_at, id);
+CREATE INDEX idx_post_created_id ON comments (post_id, created_at, id);
+CREATE INDEX idx_conversation_created_id ON messages (conversation_id, created_at, id);
+CREATE INDEX idx_user_created_id ON notifications (user_id, created_at, id);
+CREATE INDEX idx_user_read_created_id ON notifications (user_id, is_read, created_at, id);
@@ -0,0 +1,26 @@
+-- Denormalized inbox state maintained by ConversationService.sendMessage
+ALTER TABLE conversations
+    ADD COLUMN last_message_id BIGINT NULL,
+    ADD COLUMN last_message_preview VARCHAR(255) NULL,
+    ADD COLUMN last_message_at TIMESTAMP NULL,
+    ADD COLUMN user1_unread_count INT NOT NULL DEFAULT 0,
+    ADD COLUMN user2_unread_count INT NOT NULL DEFAULT 0;
+
+-- Backfill from existing messages (updated_at is kept as-is)
+UPDATE conversations c
+JOIN messages m ON m.id = (SELECT MAX(m2.id) FROM messages m2 WHERE m2.conversation_id = c.id)
+SET c.last_message_id = m.id,
+    c.last_message_preview = LEFT(m.text, 255),
+    c.last_message_at = m.created_at,
+    c.updated_at = c.updated_at;
+
+UPDATE conversations c
+SET c.user1_unread_count = (SELECT COUNT(*) FROM messages m
+                            WHERE m.conversation_id = c.id AND m.sender_id <> c.user1_id AND m.read_at IS NULL),
+    c.user2_unread_count = (SELECT COUNT(*) FROM messages m
+                            WHERE m.conversation_id = c.id AND m.sender_id <> c.user2_id AND m.read_at IS NULL),
+    c.updated_at = c.updated_at;
+
+-- Inbox ordered by last activity, one range scan per participant side
+CREATE INDEX idx_user1_updated ON conversations (user1_id, updated_at, id);
+CREATE INDEX idx_user2_updated ON conversations (user2_id, updated_at, id);
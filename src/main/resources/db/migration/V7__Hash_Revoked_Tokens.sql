@@ -0,0 +1,11 @@
+-- Store revoked tokens by fixed-size SHA-256 hex digest instead of the raw LONGTEXT token
+ALTER TABLE token_revocations
+    ADD COLUMN token_hash VARCHAR(64) NULL;
+
+UPDATE token_revocations
+SET token_hash = SHA2(token, 256);
+
+ALTER TABLE token_revocations
+    MODIFY COLUMN token_hash VARCHAR(64) NOT NULL,
+    ADD UNIQUE KEY unique_token_hash (token_hash),
+    DROP COLUMN token;
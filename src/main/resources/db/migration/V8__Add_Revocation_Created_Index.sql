@@ -0,0 +1,2 @@
+-- Lets the DB-polling revocation bus re-read recent rows that committed behind its id watermark
+CREATE INDEX idx_created_at ON token_revocations (created_at);
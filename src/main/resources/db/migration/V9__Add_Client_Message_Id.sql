@@ -0,0 +1,4 @@
+-- Idempotency key for messages sent over STOMP; lets the write-behind pipeline retry batches safely
+ALTER TABLE messages
+    ADD COLUMN client_message_id VARCHAR(64) NULL AFTER image_url,
+    ADD UNIQUE KEY unique_sender_client_message (sender_id, client_message_id);
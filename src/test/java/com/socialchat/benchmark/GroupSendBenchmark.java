@@ -0,0 +1,154 @@
+package com.socialchat.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.socialchat.dto.WebSocketMessageDto;
+import com.socialchat.entity.Conversation;
+import com.socialchat.repository.ConversationRepository;
+import com.socialchat.service.ConversationMembershipCache;
+import com.socialchat.service.InProcessMembershipEventBus;
+import com.socialchat.service.WebSocketEventService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Server-side cost of one group message against the group size, with every member online and
+ * subscribed: the sender's membership check, then a single publish to the conversation topic that the
+ * simple broker fans out to the member sessions. Storage and the socket writes are left out; the
+ * outbound channel only counts frames.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.socialchat.benchmark.GroupSendBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupSendBenchmark {
+    private static final long CONVERSATION_ID = 4096L;
+
+    @Param({"2", "10", "100", "500"})
+    private int groupSize;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private ConversationMembershipCache membershipCache;
+    private WebSocketEventService eventService;
+    private SimpleBrokerMessageHandler broker;
+    private WebSocketMessageDto message;
+    private long senderId;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        List<Long> memberIds = LongStream.rangeClosed(1, groupSize).boxed().toList();
+        ConversationRepository conversationRepository = mock(ConversationRepository.class);
+        when(conversationRepository.findParticipantsByIdIn(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{CONVERSATION_ID, null, null, 0L, 0L, 0L, Conversation.ConversationType.GROUP}));
+        when(conversationRepository.findMemberIds(anyLong())).thenReturn(memberIds);
+        InProcessMembershipEventBus membershipEventBus = new InProcessMembershipEventBus();
+        membershipCache = new ConversationMembershipCache(conversationRepository, membershipEventBus,
+                65536, 4096, new SimpleMeterRegistry());
+
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        broker = new SimpleBrokerMessageHandler(clientInboundChannel, (frame, timeout) -> {
+            delivered.incrementAndGet();
+            return true;
+        }, brokerChannel, List.of("/topic"));
+        broker.start();
+        for (long memberId : memberIds) {
+            String sessionId = "session-" + memberId;
+            clientInboundChannel.send(frame(SimpMessageType.CONNECT, sessionId, null));
+            clientInboundChannel.send(frame(SimpMessageType.SUBSCRIBE, sessionId, "/topic/conversation/" + CONVERSATION_ID));
+        }
+
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().build());
+        messagingTemplate.setMessageConverter(converter);
+        eventService = new WebSocketEventService(messagingTemplate, mock(SimpUserRegistry.class), membershipEventBus);
+
+        senderId = groupSize / 2 + 1;
+        message = WebSocketMessageDto.builder()
+                .type("MESSAGE")
+                .clientMessageId("7f1c2a9e-0b4d-4c55-9a1e-3f2b8d6c4e01")
+                .conversationId(CONVERSATION_ID)
+                .senderId(senderId)
+                .senderUsername("alice")
+                .content("Are we still on for tomorrow? I can bring the slides.")
+                .createdAt(LocalDateTime.of(2024, 5, 1, 12, 0))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public boolean membershipCheck() {
+        return membershipCache.isParticipant(CONVERSATION_ID, senderId);
+    }
+
+    @Benchmark
+    public long send() {
+        if (!membershipCache.isParticipant(CONVERSATION_ID, senderId)) {
+            throw new IllegalStateException("Sender is not a member");
+        }
+        eventService.broadcastMessage(message);
+        return delivered.get();
+    }
+
+    private static org.springframework.messaging.Message<byte[]> frame(SimpMessageType type, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GroupSendBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.socialchat.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.socialchat.entity.Conversation;
+import com.socialchat.entity.Message;
+import com.socialchat.entity.User;
+import com.socialchat.repository.MessageRepositoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per stored chat message of the old write path, one insert and commit per message, against the
+ * ingest path, one multi-row insert and commit per batch of BATCH_SIZE messages. Runs against an
+ * in-memory H2 database in MySQL mode, so there is no network round trip and no fsync on commit; the
+ * gap against a real MySQL server is wider than the one measured here.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.socialchat.benchmark.IngestBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+    private static final int BATCH_SIZE = 200;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private MessageRepositoryImpl messageRepository;
+    private Conversation conversation;
+    private User sender;
+    private long nextSeq;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:ingest_benchmark;MODE=MySQL", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "conversation_id BIGINT NOT NULL, seq BIGINT NOT NULL, sender_id BIGINT NOT NULL, text TEXT, " +
+                "image_url VARCHAR(255), created_at TIMESTAMP NOT NULL, client_message_id VARCHAR(64), " +
+                "UNIQUE (sender_id, client_message_id))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        messageRepository = new MessageRepositoryImpl(jdbcTemplate);
+        conversation = Conversation.builder().id(4096L).build();
+        sender = User.builder().id(17L).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE messages");
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int perMessage() {
+        List<Message> messages = nextMessages();
+        int stored = 0;
+        for (Message message : messages) {
+            stored += transactionTemplate.execute(status -> messageRepository.insertAll(List.of(message)));
+        }
+        return stored;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int batched() {
+        List<Message> messages = nextMessages();
+        return transactionTemplate.execute(status -> messageRepository.insertAll(messages));
+    }
+
+    private List<Message> nextMessages() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        List<Message> messages = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long seq = ++nextSeq;
+            messages.add(Message.builder()
+                    .conversation(conversation)
+                    .seq(seq)
+                    .sender(sender)
+                    .text("Are we still on for tomorrow? I can bring the slides.")
+                    .clientMessageId("client-" + seq)
+                    .createdAt(now)
+                    .build());
+        }
+        return messages;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IngestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.socialchat.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.socialchat.security.JwtPrincipal;
+import com.socialchat.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of JwtTokenProvider.verifyOnce: a repeat token answered from the verified cache, a token
+ * that is verified every time (cache disabled), and a stream of distinct tokens through a full cache,
+ * where every call verifies and evicts the entry closest to expiry.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.socialchat.benchmark.JwtVerifyBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+    private static final String SECRET = "benchmark-secret-that-is-long-enough-for-hmac-sha-512-signing";
+
+    @Param({"10000"})
+    private int cacheSize;
+
+    private JwtTokenProvider cached;
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider full;
+    private String token;
+    private String[] distinctTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        cached = provider(cacheSize);
+        uncached = provider(0);
+        full = provider(cacheSize);
+
+        token = cached.generateAccessToken(42L, "alice");
+        cached.verifyOnce(token);
+
+        // Twice the cache size with distinct expiries, so the cache stays full and keeps evicting
+        distinctTokens = new String[cacheSize * 2];
+        for (int i = 0; i < distinctTokens.length; i++) {
+            ReflectionTestUtils.setField(full, "jwtExpirationMs", 3_600_000L + i * 1000L);
+            distinctTokens[i] = full.generateAccessToken((long) i, "user" + i);
+        }
+        for (int i = 0; i < cacheSize; i++) {
+            full.verifyOnce(distinctTokens[i]);
+        }
+        next = cacheSize;
+    }
+
+    @Benchmark
+    public JwtPrincipal cachedToken() {
+        return cached.verifyOnce(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal uncachedToken() {
+        return uncached.verifyOnce(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal fullCacheEviction() {
+        JwtPrincipal principal = full.verifyOnce(distinctTokens[next]);
+        next = next + 1 < distinctTokens.length ? next + 1 : 0;
+        return principal;
+    }
+
+    private static JwtTokenProvider provider(int maxSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "refreshTokenExpirationMs", 604_800_000L);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", maxSize);
+        ReflectionTestUtils.invokeMethod(provider, "init");
+        return provider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.socialchat.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialchat.config.BinaryPayloadFormats;
+import com.socialchat.dto.WebSocketMessageDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and encode/decode cost of a chat frame body in JSON, CBOR and Smile, plus the JSON-to-binary
+ * transcoding done for binary sessions. Payload sizes are printed before the run:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.socialchat.benchmark.PayloadFormatBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+    private static final WebSocketMessageDto MESSAGE = WebSocketMessageDto.builder()
+            .id(1048576L)
+            .clientMessageId("7f1c2a9e-0b4d-4c55-9a1e-3f2b8d6c4e01")
+            .conversationId(4096L)
+            .seq(52311L)
+            .senderId(77L)
+            .senderUsername("alice")
+            .senderPhotoUrl("https://cdn.example.com/avatars/77.jpg")
+            .content("Are we still on for tomorrow? I can bring the slides.")
+            .createdAt(LocalDateTime.of(2024, 5, 1, 12, 0))
+            .type("MESSAGE")
+            .build();
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private BinaryPayloadFormats payloadFormats;
+    private ObjectMapper mapper;
+    private MimeType mimeType;
+    private byte[] json;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        payloadFormats = new BinaryPayloadFormats(builder);
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        mapper = switch (format) {
+            case "cbor" -> payloadFormats.cborMapper();
+            case "smile" -> payloadFormats.smileMapper();
+            default -> jsonMapper;
+        };
+        mimeType = switch (format) {
+            case "cbor" -> BinaryPayloadFormats.CBOR;
+            case "smile" -> BinaryPayloadFormats.SMILE;
+            default -> null;
+        };
+        json = jsonMapper.writeValueAsBytes(MESSAGE);
+        encoded = mapper.writeValueAsBytes(MESSAGE);
+    }
+
+    @Benchmark
+    public byte[] encode() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(MESSAGE);
+    }
+
+    @Benchmark
+    public WebSocketMessageDto decode() throws IOException {
+        return mapper.readValue(encoded, WebSocketMessageDto.class);
+    }
+
+    // What a binary session costs per broadcast on top of the broker's JSON serialization; JSON is the baseline
+    @Benchmark
+    public byte[] transcode() {
+        // A fresh array each time, as every broadcast carries its own payload
+        byte[] payload = json.clone();
+        return mimeType != null ? payloadFormats.transcode(payload, mimeType) : payload;
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        for (String name : new String[]{"json", "cbor", "smile"}) {
+            PayloadFormatBenchmark benchmark = new PayloadFormatBenchmark();
+            benchmark.format = name;
+            benchmark.setUp();
+            System.out.printf("%-6s %4d bytes%n", name, benchmark.encoded.length);
+        }
+        new Runner(new OptionsBuilder()
+                .include(PayloadFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
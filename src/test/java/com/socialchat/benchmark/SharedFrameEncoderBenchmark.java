@@ -0,0 +1,96 @@
+package com.socialchat.benchmark;
+
+import com.socialchat.config.BinaryPayloadFormats;
+import com.socialchat.config.SharedFrameStompEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes one broadcast for every subscriber of a destination, with the standard STOMP encoder and
+ * with SharedFrameStompEncoder. Run with the GC profiler to compare gc.alloc.rate.norm (bytes per
+ * broadcast):
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.socialchat.benchmark.SharedFrameEncoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedFrameEncoderBenchmark {
+    private static final byte[] PAYLOAD = ("{\"id\":1048576,\"conversationId\":4096,\"senderId\":77,"
+            + "\"senderUsername\":\"alice\",\"content\":\"" + "Lorem ipsum dolor sit amet. ".repeat(10) + "\","
+            + "\"type\":\"TEXT\",\"createdAt\":\"2024-05-01T12:00:00\"}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1", "10", "100", "1000"})
+    private int subscribers;
+
+    private final List<Map<String, Object>> headers = new ArrayList<>();
+    private StompEncoder standardEncoder;
+    private SharedFrameStompEncoder sharedEncoder;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < subscribers; i++) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setSubscriptionId("sub-" + i);
+            accessor.setMessageId("session-" + i + "-" + i);
+            accessor.setDestination("/topic/conversation/4096");
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            headers.add(accessor.getMessageHeaders());
+        }
+        standardEncoder = new StompEncoder();
+        sharedEncoder = new SharedFrameStompEncoder(new BinaryPayloadFormats(Jackson2ObjectMapperBuilder.json()));
+    }
+
+    @Benchmark
+    public void standardEncoder(Blackhole blackhole) {
+        broadcast(standardEncoder, blackhole);
+    }
+
+    @Benchmark
+    public void sharedFrameEncoder(Blackhole blackhole) {
+        broadcast(sharedEncoder, blackhole);
+    }
+
+    private void broadcast(StompEncoder encoder, Blackhole blackhole) {
+        // The broker serializes each broadcast once and hands all subscribers that payload instance
+        byte[] payload = PAYLOAD.clone();
+        for (Map<String, Object> subscriberHeaders : headers) {
+            blackhole.consume(encoder.encode(subscriberHeaders, payload));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SharedFrameEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
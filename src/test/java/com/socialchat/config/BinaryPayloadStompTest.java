@@ -0,0 +1,159 @@
+package com.socialchat.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialchat.entity.User;
+import com.socialchat.repository.UserRepository;
+import com.socialchat.security.JwtTokenProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Connects real STOMP clients to the plain WebSocket endpoint and checks the frames a broadcast
+ * reaches them in, for each format a client can ask for on CONNECT.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:binary_payload;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class BinaryPayloadStompTest {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private BinaryPayloadFormats payloadFormats;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ThreadPoolTaskScheduler scheduler;
+    private WebSocketStompClient stompClient;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        String username = "stomp-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("not-used")
+                .displayName(username)
+                .isDeleted(false)
+                .build());
+        token = jwtTokenProvider.generateAccessToken(user.getId(), username);
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setTaskScheduler(scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stompClient.stop();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void cborSessionReceivesCborFrames() throws Exception {
+        Frame frame = receiveBroadcast(BinaryPayloadFormats.CBOR);
+
+        assertThat(frame.contentType()).isEqualTo(BinaryPayloadFormats.CBOR);
+        assertThat(frame.payload()[0]).isNotEqualTo((byte) '{');
+        assertBroadcastBody(payloadFormats.cborMapper().readTree(frame.payload()));
+    }
+
+    @Test
+    void smileSessionReceivesSmileFrames() throws Exception {
+        Frame frame = receiveBroadcast(BinaryPayloadFormats.SMILE);
+
+        assertThat(frame.contentType()).isEqualTo(BinaryPayloadFormats.SMILE);
+        // Smile documents start with the ":)\n" signature
+        assertThat(new String(frame.payload(), 0, 3)).isEqualTo(":)\n");
+        assertBroadcastBody(payloadFormats.smileMapper().readTree(frame.payload()));
+    }
+
+    @Test
+    void sessionWithoutFormatStaysOnJson() throws Exception {
+        Frame frame = receiveBroadcast(null);
+
+        assertThat(frame.contentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertBroadcastBody(objectMapper.readTree(frame.payload()));
+    }
+
+    private Frame receiveBroadcast(MimeType format) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        if (format != null) {
+            connectHeaders.setContentType(format);
+        }
+        StompSession session = stompClient.connectAsync("ws://localhost:{port}/ws/chat-native?token={token}",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {}, port, token)
+                .get(5, TimeUnit.SECONDS);
+
+        String destination = "/topic/binary-test/" + UUID.randomUUID();
+        BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add(new Frame(headers.getContentType(), (byte[]) payload));
+            }
+        });
+
+        // SUBSCRIBE is processed asynchronously, so publish until the subscription is in place
+        Frame frame = null;
+        for (int attempt = 0; attempt < 50 && frame == null; attempt++) {
+            messagingTemplate.convertAndSend(destination, Map.of("conversationId", 7, "content", "hello"));
+            frame = frames.poll(100, TimeUnit.MILLISECONDS);
+        }
+        session.disconnect();
+        assertThat(frame).as("broadcast frame").isNotNull();
+        return frame;
+    }
+
+    private static void assertBroadcastBody(JsonNode body) {
+        assertThat(body.get("conversationId").asInt()).isEqualTo(7);
+        assertThat(body.get("content").asText()).isEqualTo("hello");
+    }
+
+    private record Frame(MimeType contentType, byte[] payload) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.socialchat.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrioritizedOutboundExecutorTest {
+    private SimpleMeterRegistry meterRegistry;
+    private PrioritizedOutboundExecutor executor;
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PrioritizedOutboundExecutor(2, 50, 1000, 200, meterRegistry);
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-1");
+        executor.registerSession(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void closesSessionWhoseFrameExceedsSendTimeLimit() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        executor.execute(task(message -> {
+            sending.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        }));
+
+        assertThat(sending.await(1, TimeUnit.SECONDS)).isTrue();
+        verify(session, timeout(2000)).close(argThat(status -> status.getCode() == CloseStatus.SESSION_NOT_RELIABLE.getCode()));
+        assertThat(interrupted).isTrue();
+        assertThat(meterRegistry.get("websocket.outbound.disconnected").tag("reason", "transport-limit").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void leavesSessionOpenWhenFramesAreSentInTime() throws Exception {
+        CountDownLatch sent = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            executor.execute(task(message -> sent.countDown()));
+        }
+
+        assertThat(sent.await(1, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(400);
+        executor.closeStalledSessions();
+        verify(session, never()).close(argThat(status -> true));
+    }
+
+    @Test
+    void closeSessionClosesOnceAndDropsLaterFrames() throws Exception {
+        CloseStatus status = CloseStatus.SESSION_NOT_RELIABLE.withReason("Heartbeat timeout");
+        executor.closeSession("session-1", status);
+        executor.closeSession("session-1", status);
+
+        AtomicBoolean sent = new AtomicBoolean();
+        executor.execute(task(message -> sent.set(true)));
+
+        verify(session, timeout(1000)).close(status);
+        Thread.sleep(100);
+        verify(session).close(argThat(closeStatus -> true));
+        assertThat(sent).isFalse();
+    }
+
+    private MessageHandlingRunnable task(MessageHandler handler) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("session-1");
+        accessor.setDestination("/topic/conversation/1");
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return handler;
+            }
+
+            @Override
+            public void run() {
+                handler.handleMessage(message);
+            }
+        };
+    }
+}
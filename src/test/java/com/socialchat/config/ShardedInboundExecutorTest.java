@@ -0,0 +1,113 @@
+package com.socialchat.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedInboundExecutorTest {
+    private final ShardedInboundExecutor executor = new ShardedInboundExecutor(16, 100, 100, false, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void chatFrameDoesNotOvertakeTheSessionsEarlierSubscribe() throws InterruptedException {
+        List<String> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        Frame subscribe = new Frame(SimpMessageType.SUBSCRIBE, "session-1", "/topic/conversation/1", () -> {
+            sleep(200);
+            handled.add("SUBSCRIBE");
+            done.countDown();
+        });
+        Frame send = sendOnOtherShard("session-1", subscribe, () -> {
+            handled.add("SEND");
+            done.countDown();
+        });
+
+        executor.execute(subscribe);
+        executor.execute(send);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(handled).containsExactly("SUBSCRIBE", "SEND");
+    }
+
+    @Test
+    void sessionWithNothingPendingIsRoutedByConversationAgain() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        Frame subscribe = new Frame(SimpMessageType.SUBSCRIBE, "session-1", "/topic/conversation/1", first::countDown);
+        executor.execute(subscribe);
+        assertThat(first.await(2, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(executor, "pendingSessions")).isEmpty();
+    }
+
+    // A chat frame of the session whose conversation key maps to a different shard than the session key
+    private Frame sendOnOtherShard(String sessionId, Frame sessionFrame, Runnable action) {
+        int sessionShard = shardOf(sessionFrame);
+        for (int conversationId = 1; ; conversationId++) {
+            Frame send = new Frame(SimpMessageType.MESSAGE, sessionId, "/app/chat/" + conversationId + "/send", action);
+            if (shardOf(send) != sessionShard) {
+                return send;
+            }
+        }
+    }
+
+    private int shardOf(Frame frame) {
+        Integer key = ReflectionTestUtils.invokeMethod(executor, "shardKey", frame);
+        return Math.floorMod(key, 16);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Frame implements MessageHandlingRunnable {
+        private final Message<byte[]> message;
+        private final Runnable action;
+
+        private Frame(SimpMessageType type, String sessionId, String destination, Runnable action) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+            accessor.setSessionId(sessionId);
+            accessor.setDestination(destination);
+            this.message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+            this.action = action;
+        }
+
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return message -> action.run();
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+    }
+}
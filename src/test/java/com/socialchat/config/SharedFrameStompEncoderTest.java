@@ -0,0 +1,91 @@
+package com.socialchat.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedFrameStompEncoderTest {
+    private static final byte[] PAYLOAD = "{\"conversationId\":1,\"content\":\"hello: world\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final BinaryPayloadFormats payloadFormats = new BinaryPayloadFormats(Jackson2ObjectMapperBuilder.json());
+    private final SharedFrameStompEncoder encoder = new SharedFrameStompEncoder(payloadFormats);
+
+    @Test
+    void encodesMessageFramesLikeTheStandardEncoder() {
+        Message<byte[]> frame = decode(encoder.encode(headers("sub-1", "m-1", null), PAYLOAD));
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+        assertThat(accessor.getCommand()).isEqualTo(StompCommand.MESSAGE);
+        assertThat(accessor.getSubscriptionId()).isEqualTo("sub-1");
+        assertThat(accessor.getMessageId()).isEqualTo("m-1");
+        assertThat(accessor.getDestination()).isEqualTo("/topic/conversation/1");
+        assertThat(accessor.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertThat(accessor.getContentLength()).isEqualTo(PAYLOAD.length);
+        assertThat(frame.getPayload()).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    void framesOfOneBroadcastDifferOnlyInPerSubscriberHeaders() {
+        byte[] first = encoder.encode(headers("sub-1", "m-1", null), PAYLOAD);
+        byte[] second = encoder.encode(headers("sub-22", "m-22", null), PAYLOAD);
+
+        String expected = new String(first, StandardCharsets.UTF_8)
+                .replace("subscription:sub-1\n", "subscription:sub-22\n")
+                .replace("message-id:m-1\n", "message-id:m-22\n");
+        assertThat(new String(second, StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertThat(decode(second).getPayload()).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    void transcodesFramesMarkedWithABinaryFormat() throws Exception {
+        Message<byte[]> frame = decode(encoder.encode(headers("sub-1", "m-1", BinaryPayloadFormats.CBOR), PAYLOAD));
+
+        assertThat(StompHeaderAccessor.wrap(frame).getContentType()).isEqualTo(BinaryPayloadFormats.CBOR);
+        JsonNode body = payloadFormats.cborMapper().readTree(frame.getPayload());
+        assertThat(body.get("conversationId").asLong()).isEqualTo(1L);
+        assertThat(body.get("content").asText()).isEqualTo("hello: world");
+    }
+
+    @Test
+    void leavesOtherCommandsToTheStandardEncoder() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+        accessor.setReceiptId("r-1");
+
+        Message<byte[]> frame = decode(encoder.encode(accessor.getMessageHeaders(), new byte[0]));
+
+        assertThat(StompHeaderAccessor.wrap(frame).getCommand()).isEqualTo(StompCommand.RECEIPT);
+        assertThat(StompHeaderAccessor.wrap(frame).getReceiptId()).isEqualTo("r-1");
+    }
+
+    private static Map<String, Object> headers(String subscriptionId, String messageId, MimeType format) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setMessageId(messageId);
+        accessor.setDestination("/topic/conversation/1");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (format != null) {
+            accessor.setHeader(BinaryPayloadFormats.FORMAT_HEADER, format);
+        }
+        return accessor.getMessageHeaders();
+    }
+
+    private static Message<byte[]> decode(byte[] frame) {
+        List<Message<byte[]>> messages = new StompDecoder().decode(ByteBuffer.wrap(frame));
+        assertThat(messages).hasSize(1);
+        return messages.get(0);
+    }
+}
@@ -0,0 +1,154 @@
+package com.socialchat.config;
+
+import com.socialchat.SocialChatBackendApplication;
+import com.socialchat.entity.User;
+import com.socialchat.repository.UserRepository;
+import com.socialchat.security.JwtTokenProvider;
+import com.socialchat.service.UserPresenceService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes in relay mode, sharing one database and an embedded Artemis broker started by the first,
+ * with the same user connected to both: closing either session must leave the user online on both
+ * nodes, and only closing the last one takes them offline everywhere.
+ */
+class StompBrokerRelayPresenceTest {
+    private static final String DATABASE_URL =
+            "jdbc:h2:mem:relay_presence;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static ThreadPoolTaskScheduler scheduler;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int brokerPort = freePort();
+        // The first node creates the schema and hosts the broker; the second only connects to both
+        nodeA = startNode(brokerPort,
+                "websocket.broker.relay.embedded=true",
+                "spring.sql.init.mode=always",
+                "spring.sql.init.schema-locations=classpath:presence-directory-schema.sql",
+                "spring.jpa.defer-datasource-initialization=true");
+        nodeB = startNode(brokerPort,
+                "spring.jpa.hibernate.ddl-auto=none");
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setTaskScheduler(scheduler);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (stompClient != null) {
+            stompClient.stop();
+            scheduler.shutdown();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void userStaysOnlineWhileAnyNodeHasASession() throws Exception {
+        String username = "relay-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = nodeA.getBean(UserRepository.class).save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("not-used")
+                .displayName(username)
+                .isDeleted(false)
+                .build());
+        String token = nodeA.getBean(JwtTokenProvider.class).generateAccessToken(user.getId(), username);
+        UserPresenceService presenceA = nodeA.getBean(UserPresenceService.class);
+        UserPresenceService presenceB = nodeB.getBean(UserPresenceService.class);
+
+        StompSession sessionA = connect(nodeA, token);
+        StompSession sessionB = connect(nodeB, token);
+        awaitNodesHoldingSessions(user.getId(), 2);
+        await(() -> presenceA.isUserOnline(user.getId()) && presenceB.isUserOnline(user.getId()));
+
+        sessionA.disconnect();
+        awaitNodesHoldingSessions(user.getId(), 1);
+        // Give node B a few polls to apply anything node A may have announced
+        Thread.sleep(500);
+        assertThat(presenceA.isUserOnline(user.getId())).isTrue();
+        assertThat(presenceB.isUserOnline(user.getId())).isTrue();
+
+        sessionB.disconnect();
+        await(() -> !presenceA.isUserOnline(user.getId()) && !presenceB.isUserOnline(user.getId()));
+    }
+
+    private static ConfigurableApplicationContext startNode(int brokerPort, String... properties) {
+        // Passed as arguments, which take precedence over application.yml; builder properties do not
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + DATABASE_URL,
+                "--websocket.broker.mode=relay",
+                "--websocket.broker.relay.port=" + brokerPort,
+                "--presence.directory=db-polling",
+                "--presence.poll-interval=100"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(SocialChatBackendApplication.class)
+                .profiles("test")
+                .run(args.toArray(String[]::new));
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, String token) throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        return stompClient.connectAsync("ws://localhost:{port}/ws/chat-native?token={token}",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {}, port, token)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private static void awaitNodesHoldingSessions(long userId, int nodes) throws InterruptedException {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        await(() -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM presence_node_sessions WHERE user_id = ?", Integer.class, userId) == nodes);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 10s").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
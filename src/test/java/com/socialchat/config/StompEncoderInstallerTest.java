@@ -0,0 +1,35 @@
+package com.socialchat.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StompEncoderInstallerTest {
+    @Autowired
+    @Qualifier("subProtocolWebSocketHandler")
+    private WebSocketHandler webSocketHandler;
+
+    @Test
+    void installsSharedFrameEncoderOnRegisteredStompHandler() {
+        List<SubProtocolHandler> protocolHandlers = ((SubProtocolWebSocketHandler) webSocketHandler).getProtocolHandlers();
+
+        assertThat(protocolHandlers).hasAtLeastOneElementOfType(StompSubProtocolHandler.class);
+        assertThat(protocolHandlers)
+                .filteredOn(StompSubProtocolHandler.class::isInstance)
+                .allSatisfy(handler -> assertThat(ReflectionTestUtils.getField(handler, "stompEncoder"))
+                        .isInstanceOf(SharedFrameStompEncoder.class));
+    }
+}
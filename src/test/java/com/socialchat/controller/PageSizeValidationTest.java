@@ -0,0 +1,60 @@
+package com.socialchat.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * List endpoints reject page sizes outside 1..SliceResponse.MAX_PAGE_SIZE and malformed cursors with a
+ * 400 instead of failing inside the service.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PageSizeValidationTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void feedRejectsNonPositiveAndOversizedPages() throws Exception {
+        mockMvc.perform(get("/api/posts/feed").param("size", "-1").with(user(1L)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/posts/feed").param("size", "0").with(user(1L)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/posts/feed").param("size", "101").with(user(1L)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listEndpointsRejectNonPositiveAndOversizedPages() throws Exception {
+        List<String> endpoints = List.of("/api/posts", "/api/posts/user/1", "/api/posts/1/comments",
+                "/api/notifications", "/api/notifications/unread", "/api/conversations", "/api/conversations/1/messages");
+        for (String endpoint : endpoints) {
+            for (String size : List.of("0", "-5", "101")) {
+                mockMvc.perform(get(endpoint).param("size", size).with(user(1L)))
+                        .andExpect(status().isBadRequest());
+            }
+        }
+    }
+
+    @Test
+    void feedRejectsMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/posts/feed").param("before", "12345").with(user(1L)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static RequestPostProcessor user(Long userId) {
+        return authentication(new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.socialchat.repository;
+
+import com.socialchat.dto.UserPresenceDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPresenceRepositoryImplTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final UserPresenceRepositoryImpl repository = new UserPresenceRepositoryImpl(jdbcTemplate);
+
+    @Test
+    void writesAllRowsWithOneStatement() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(3);
+
+        int affected = repository.upsertAll(presences(2));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(sql.capture(), args.capture());
+        assertThat(sql.getValue()).contains("VALUES (?, ?, ?, CURRENT_TIMESTAMP), (?, ?, ?, CURRENT_TIMESTAMP) ON DUPLICATE KEY UPDATE");
+        assertThat(args.getValue()).hasSize(6).startsWith(1L, true);
+        assertThat(affected).isEqualTo(3);
+    }
+
+    @Test
+    void splitsLargeFlushesIntoChunks() {
+        repository.upsertAll(presences(1001));
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+    }
+
+    private static List<UserPresenceDto> presences(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(userId -> UserPresenceDto.builder()
+                        .userId(userId)
+                        .online(true)
+                        .lastSeen(LocalDateTime.of(2024, 5, 1, 12, 0))
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,60 @@
+package com.socialchat.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+    private static final long HOUR_MS = 3_600_000L;
+
+    private final JwtTokenProvider provider = new JwtTokenProvider();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(provider, "jwtSecret", "test-secret-that-is-long-enough-for-hmac-sha-512-signing");
+        ReflectionTestUtils.setField(provider, "refreshTokenExpirationMs", 24 * HOUR_MS);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", 2);
+        provider.init();
+    }
+
+    @Test
+    void fullCacheEvictsTheTokenThatExpiresFirst() {
+        String threeHours = tokenExpiringIn(3 * HOUR_MS, 1L);
+        String oneHour = tokenExpiringIn(HOUR_MS, 2L);
+        String twoHours = tokenExpiringIn(2 * HOUR_MS, 3L);
+
+        assertThat(provider.getUserIdFromToken(threeHours)).isEqualTo(1L);
+        assertThat(provider.getUserIdFromToken(oneHour)).isEqualTo(2L);
+        assertThat(provider.getUserIdFromToken(twoHours)).isEqualTo(3L);
+
+        assertThat(verifiedTokens().keySet()).containsExactlyInAnyOrder(
+                JwtTokenProvider.hashToken(threeHours), JwtTokenProvider.hashToken(twoHours));
+    }
+
+    @Test
+    void repeatedVerificationKeepsOneEntry() {
+        String token = tokenExpiringIn(HOUR_MS, 1L);
+
+        provider.validateToken(token);
+        provider.validateToken(token);
+        String other = tokenExpiringIn(2 * HOUR_MS, 2L);
+        provider.validateToken(other);
+
+        assertThat(verifiedTokens()).hasSize(2);
+        assertThat(provider.validateToken(token)).isTrue();
+    }
+
+    private String tokenExpiringIn(long expirationMs, Long userId) {
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        return provider.generateAccessToken(userId, "user" + userId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, JwtPrincipal> verifiedTokens() {
+        return (Map<String, JwtPrincipal>) ReflectionTestUtils.getField(provider, "verifiedTokens");
+    }
+}
@@ -0,0 +1,130 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.MessageDto;
+import com.socialchat.dto.WebSocketMessageDto;
+import com.socialchat.entity.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMessageIngestServiceTest {
+    private final MessageBatchWriter messageBatchWriter = mock(MessageBatchWriter.class);
+    private final WebSocketEventService eventService = mock(WebSocketEventService.class);
+    private final RecentMessageCache recentMessageCache = mock(RecentMessageCache.class);
+    private final ChatMessageIngestService service = new ChatMessageIngestService(
+            messageBatchWriter, eventService, recentMessageCache, mock(UserProfileCache.class));
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    void writesQueuedMessagesInBatchesAndPublishesCommits() throws InterruptedException {
+        when(messageBatchWriter.writeBatch(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        start(100, 3, 200, 100);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(service.enqueue(message(i))).isTrue();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Message>> batches = ArgumentCaptor.forClass(List.class);
+        verify(messageBatchWriter, timeout(2000).times(2)).writeBatch(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(3, 2);
+        verify(eventService, timeout(2000).times(2)).broadcastMessageCommits(anyList());
+        verify(recentMessageCache, timeout(2000).times(5)).append(anyLong(), any(MessageDto.class));
+    }
+
+    @Test
+    void retriesAFailedBatchUntilItIsStored() throws InterruptedException {
+        when(messageBatchWriter.writeBatch(anyList()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        start(100, 10, 10, 100);
+
+        service.enqueue(message(1));
+
+        verify(messageBatchWriter, timeout(2000).times(2)).writeBatch(anyList());
+        verify(eventService, timeout(2000).times(1)).broadcastMessageCommits(anyList());
+    }
+
+    @Test
+    void splitsAPoisonBatchAndDeadLettersTheBadMessage() throws InterruptedException {
+        when(messageBatchWriter.writeBatch(anyList())).thenAnswer(invocation -> {
+            List<Message> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(message -> message.getClientMessageId().equals("client-1"))) {
+                throw new DataIntegrityViolationException("Data too long for column 'text'");
+            }
+            return batch;
+        });
+        start(100, 4, 200, 100);
+
+        for (int i = 0; i < 4; i++) {
+            service.enqueue(message(i));
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Message>> rejected = ArgumentCaptor.forClass(List.class);
+        verify(eventService, timeout(5000)).broadcastMessageRejections(rejected.capture());
+        assertThat(rejected.getValue()).extracting(Message::getClientMessageId).containsExactly("client-1");
+        verify(recentMessageCache, timeout(2000).times(3)).append(anyLong(), any(MessageDto.class));
+    }
+
+    @Test
+    void rejectsMessagesWhenTheQueueStaysFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageBatchWriter.writeBatch(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        start(1, 1, 10, 50);
+
+        assertThat(service.enqueue(message(1))).isTrue();
+        assertThat(writing.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.enqueue(message(2))).isTrue();
+        assertThat(service.enqueue(message(3))).isFalse();
+
+        release.countDown();
+        verify(messageBatchWriter, timeout(2000).times(2)).writeBatch(anyList());
+    }
+
+    private void start(int queueCapacity, int batchSize, long flushIntervalMs, long offerTimeoutMs) {
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(service, "offerTimeoutMs", offerTimeoutMs);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        service.start();
+    }
+
+    private static WebSocketMessageDto message(int i) {
+        return WebSocketMessageDto.builder()
+                .type("MESSAGE")
+                .clientMessageId("client-" + i)
+                .conversationId(7L)
+                .senderId(10L)
+                .content("Message " + i)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 12, 0))
+                .build();
+    }
+}
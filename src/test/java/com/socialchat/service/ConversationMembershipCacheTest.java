@@ -0,0 +1,57 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.Conversation;
+import com.socialchat.repository.ConversationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationMembershipCacheTest {
+    private static final long GROUP_ID = 10L;
+
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final ConversationMembershipCache cache = new ConversationMembershipCache(conversationRepository,
+            mock(MembershipEventBus.class), 1024, 16, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{GROUP_ID, null, null, 0L, 0L, 0L, Conversation.ConversationType.GROUP});
+        when(conversationRepository.findParticipantsByIdIn(any())).thenReturn(rows);
+    }
+
+    @Test
+    void loadRacingWithEvictionDoesNotCacheTheOldMembers() {
+        // The first load reads the members, then the removal of user 2 commits and evicts before it stores them
+        when(conversationRepository.findMemberIds(GROUP_ID))
+                .thenAnswer(invocation -> {
+                    cache.evict(GROUP_ID);
+                    return List.of(1L, 2L);
+                })
+                .thenReturn(List.of(1L));
+
+        assertThat(cache.isParticipant(GROUP_ID, 1L)).isTrue();
+
+        assertThat(cache.isParticipant(GROUP_ID, 2L)).isFalse();
+        verify(conversationRepository, times(2)).findMemberIds(GROUP_ID);
+    }
+
+    @Test
+    void knowsGroupsFromTheLoadedSlot() {
+        when(conversationRepository.findMemberIds(GROUP_ID)).thenReturn(List.of(1L, 2L));
+
+        assertThat(cache.isParticipant(GROUP_ID, 1L)).isTrue();
+        assertThat(cache.isGroup(GROUP_ID)).isTrue();
+        verify(conversationRepository, times(1)).findParticipantsByIdIn(any());
+    }
+}
@@ -0,0 +1,141 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.AddMembersRequest;
+import com.socialchat.dto.MessageDto;
+import com.socialchat.dto.SendMessageRequest;
+import com.socialchat.dto.SliceResponse;
+import com.socialchat.entity.Conversation;
+import com.socialchat.entity.Message;
+import com.socialchat.entity.User;
+import com.socialchat.repository.ConversationRepository;
+import com.socialchat.repository.MessageRepository;
+import com.socialchat.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationServiceTest {
+    private static final long CONVERSATION_ID = 10L;
+    private static final int MESSAGES = 7;
+
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ConversationMembershipCache membershipCache = mock(ConversationMembershipCache.class);
+    private final RecentMessageCache recentMessageCache = mock(RecentMessageCache.class);
+    private final ConversationService service = new ConversationService(conversationRepository, messageRepository,
+            userRepository, mock(WebSocketEventService.class), membershipCache, recentMessageCache,
+            mock(MembershipEventBus.class));
+
+    // Stored rows, newest first; created_at is rounded to the second as MySQL TIMESTAMP(0) stores it
+    private final List<Message> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User sender = User.builder().id(1L).username("alice").build();
+        LocalDateTime second = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+        for (long seq = MESSAGES; seq >= 1; seq--) {
+            Message message = new Message();
+            message.setId(100 + seq);
+            message.setSeq(seq);
+            message.setSender(sender);
+            message.setText("Message " + seq);
+            message.setCreatedAt(second);
+            stored.add(message);
+        }
+        when(membershipCache.isParticipant(CONVERSATION_ID, 2L)).thenReturn(true);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{CONVERSATION_ID, 1L, 2L, (long) MESSAGES, 0L, 0L, Conversation.ConversationType.DIRECT});
+        when(conversationRepository.findParticipantsByIdIn(any())).thenReturn(rows);
+        when(messageRepository.findByConversationFirstSlice(eq(CONVERSATION_ID), any(Pageable.class)))
+                .thenAnswer(invocation -> slice(Long.MAX_VALUE, invocation.getArgument(1)));
+        when(messageRepository.findByConversationBeforeSeq(eq(CONVERSATION_ID), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> slice(invocation.getArgument(1), invocation.getArgument(2)));
+        when(conversationRepository.advanceReadWatermark(anyLong(), anyLong(), anyLong())).thenReturn(0);
+        when(recentMessageCache.newest(anyLong(), anyLong(), anyInt())).thenReturn(null);
+        ReflectionTestUtils.setField(service, "maxGroupMembers", 500);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void messagePagesCoverEveryMessageOnceWhenTimestampsTie() {
+        List<Long> seqs = new ArrayList<>();
+        String before = null;
+        do {
+            SliceResponse<MessageDto> page = service.getConversationMessages(2L, CONVERSATION_ID, before, 3, false);
+            page.getContent().forEach(message -> seqs.add(message.getSeq()));
+            before = page.getNextCursor();
+        } while (before != null);
+
+        assertThat(seqs).containsExactlyElementsOf(
+                LongStream.iterate(MESSAGES, seq -> seq - 1).limit(MESSAGES).boxed().toList());
+    }
+
+    @Test
+    void directMessageSkipsTheGroupMemberUpdate() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder().id(1L).username("alice").build()));
+        when(membershipCache.isParticipant(CONVERSATION_ID, 1L)).thenReturn(true);
+        when(membershipCache.isGroup(CONVERSATION_ID)).thenReturn(false);
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        SendMessageRequest request = new SendMessageRequest();
+        request.setContent("Hi");
+
+        service.sendMessage(1L, CONVERSATION_ID, request);
+
+        verify(conversationRepository).recordMessage(eq(CONVERSATION_ID), any(), eq(1L), eq("Hi"), any());
+        verify(conversationRepository, never()).recordMemberMessage(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void addMembersLocksTheGroupBeforeCountingMembers() {
+        Conversation group = Conversation.builder().id(CONVERSATION_ID).type(Conversation.ConversationType.GROUP).build();
+        when(membershipCache.isParticipant(CONVERSATION_ID, 1L)).thenReturn(true);
+        when(conversationRepository.findByIdForUpdate(CONVERSATION_ID)).thenReturn(Optional.of(group));
+        when(conversationRepository.findMemberIds(CONVERSATION_ID)).thenReturn(List.of(1L, 2L));
+        when(conversationRepository.insertMembers(eq(CONVERSATION_ID), any())).thenReturn(1);
+        AddMembersRequest request = new AddMembersRequest();
+        request.setMemberIds(List.of(3L));
+
+        service.addMembers(1L, CONVERSATION_ID, request);
+
+        InOrder inOrder = inOrder(conversationRepository);
+        inOrder.verify(conversationRepository).findByIdForUpdate(CONVERSATION_ID);
+        inOrder.verify(conversationRepository).findMemberIds(CONVERSATION_ID);
+        inOrder.verify(conversationRepository).insertMembers(eq(CONVERSATION_ID), any());
+    }
+
+    private List<Message> slice(long beforeSeq, Pageable limit) {
+        return stored.stream()
+                .filter(message -> message.getSeq() < beforeSeq)
+                .sorted(Comparator.comparing(Message::getSeq).reversed())
+                .limit(limit.getPageSize())
+                .toList();
+    }
+}
@@ -0,0 +1,52 @@
+package com.socialchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineWheelTest {
+
+    @Test
+    void sweepVisitsOnlyTicksThatCameDue() {
+        DeadlineWheel<String> wheel = new DeadlineWheel<>(10);
+        wheel.schedule("early", 15);
+        wheel.schedule("late", 55);
+        List<String> visited = new ArrayList<>();
+
+        wheel.sweep(25, key -> {
+            visited.add(key);
+            return DeadlineWheel.DONE;
+        });
+
+        assertThat(visited).containsExactly("early");
+    }
+
+    @Test
+    void visitorCanRefileAKeyUnderItsNextDeadline() {
+        DeadlineWheel<String> wheel = new DeadlineWheel<>(10);
+        wheel.schedule("session", 15);
+        List<Long> visits = new ArrayList<>();
+
+        wheel.sweep(25, key -> {
+            visits.add(25L);
+            return 45;
+        });
+        wheel.sweep(35, key -> {
+            visits.add(35L);
+            return DeadlineWheel.DONE;
+        });
+        wheel.sweep(55, key -> {
+            visits.add(55L);
+            return DeadlineWheel.DONE;
+        });
+        wheel.sweep(100, key -> {
+            visits.add(100L);
+            return DeadlineWheel.DONE;
+        });
+
+        assertThat(visits).containsExactly(25L, 55L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.FriendRequest;
+import com.socialchat.entity.User;
+import com.socialchat.repository.FriendRequestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FriendServiceTest {
+    private final FriendRequestRepository friendRequestRepository = mock(FriendRequestRepository.class);
+    private final FriendAdjacencyIndex friendAdjacencyIndex = mock(FriendAdjacencyIndex.class);
+    private final FriendService service = new FriendService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "friendRequestRepository", friendRequestRepository);
+        ReflectionTestUtils.setField(service, "notificationService", mock(NotificationService.class));
+        ReflectionTestUtils.setField(service, "feedService", mock(FeedService.class));
+        ReflectionTestUtils.setField(service, "friendAdjacencyIndex", friendAdjacencyIndex);
+        FriendRequest request = FriendRequest.builder()
+                .id(10L)
+                .sender(User.builder().id(1L).username("alice").build())
+                .receiver(User.builder().id(2L).username("bob").build())
+                .status(FriendRequest.FriendRequestStatus.PENDING)
+                .build();
+        when(friendRequestRepository.findById(10L)).thenReturn(Optional.of(request));
+        when(friendRequestRepository.save(any(FriendRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void acceptedFriendshipReachesTheIndexOnlyAfterCommit() {
+        service.acceptFriendRequest(10L, 2L);
+        verify(friendAdjacencyIndex, never()).addFriendship(anyLong(), anyLong());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(friendAdjacencyIndex).addFriendship(1L, 2L);
+    }
+
+    @Test
+    void rolledBackAcceptLeavesTheIndexUntouched() {
+        service.acceptFriendRequest(10L, 2L);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(friendAdjacencyIndex, never()).addFriendship(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,44 @@
+package com.socialchat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InProcessMembershipEventBusTest {
+    private final InProcessMembershipEventBus bus = new InProcessMembershipEventBus();
+    private final List<MembershipEvent> delivered = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deliversOnlyOnceTheTransactionCommits() {
+        bus.subscribe(delivered::add);
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publish(new MembershipEvent(5L, 7L));
+        assertThat(delivered).isEmpty();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(delivered).containsExactly(new MembershipEvent(5L, 7L));
+    }
+
+    @Test
+    void deliversImmediatelyOutsideTransactions() {
+        bus.subscribe(delivered::add);
+
+        bus.publish(new MembershipEvent(5L, null));
+
+        assertThat(delivered).containsExactly(new MembershipEvent(5L, null));
+    }
+}
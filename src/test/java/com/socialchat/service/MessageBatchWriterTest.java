@@ -0,0 +1,69 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.Conversation;
+import com.socialchat.entity.Message;
+import com.socialchat.entity.User;
+import com.socialchat.repository.ConversationRepository;
+import com.socialchat.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageBatchWriterTest {
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final MessageBatchWriter writer = new MessageBatchWriter(messageRepository, conversationRepository);
+
+    @Test
+    void dropsMessagesOfSendersNotInTheConversationWithOneMembershipQuery() {
+        when(conversationRepository.findParticipantsByIdIn(anyCollection())).thenReturn(List.of(
+                new Object[]{1L, 10L, 11L, 0L, 0L, 0L, Conversation.ConversationType.DIRECT},
+                new Object[]{2L, null, null, 0L, 0L, 0L, Conversation.ConversationType.GROUP},
+                new Object[]{3L, null, null, 0L, 0L, 0L, Conversation.ConversationType.GROUP}));
+        // User 12 left group 2; user 10 is still in group 3
+        when(conversationRepository.findMemberships(anyCollection(), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{2L, 11L}, new Object[]{3L, 10L}));
+
+        Message direct = message(1L, 10L);
+        Message outsider = message(1L, 12L);
+        Message member = message(2L, 11L);
+        Message leaver = message(2L, 12L);
+        Message otherGroup = message(3L, 10L);
+        writer.writeBatch(List.of(direct, outsider, member, leaver, otherGroup));
+
+        verify(conversationRepository, times(1)).findMemberships(List.of(2L, 3L), Set.of(10L, 11L, 12L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Message>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(messageRepository).insertAll(inserted.capture());
+        assertThat(inserted.getValue()).containsExactly(direct, member, otherGroup);
+    }
+
+    @Test
+    void skipsMembershipQueryWithoutGroups() {
+        when(conversationRepository.findParticipantsByIdIn(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 10L, 11L, 0L, 0L, 0L, Conversation.ConversationType.DIRECT}));
+
+        writer.writeBatch(List.of(message(1L, 10L)));
+
+        verify(conversationRepository, times(0)).findMemberships(anyCollection(), anyCollection());
+        verify(messageRepository).insertAll(anyList());
+    }
+
+    private static Message message(Long conversationId, Long senderId) {
+        return Message.builder()
+                .conversation(Conversation.builder().id(conversationId).build())
+                .sender(User.builder().id(senderId).build())
+                .text("hi")
+                .build();
+    }
+}
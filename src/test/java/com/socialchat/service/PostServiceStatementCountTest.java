@@ -0,0 +1,161 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.CommentDto;
+import com.socialchat.dto.PostDto;
+import com.socialchat.dto.SliceResponse;
+import com.socialchat.entity.Comment;
+import com.socialchat.entity.Like;
+import com.socialchat.entity.Post;
+import com.socialchat.entity.User;
+import com.socialchat.repository.CommentRepository;
+import com.socialchat.repository.LikeRepository;
+import com.socialchat.repository.PostRepository;
+import com.socialchat.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Post and comment pages cost the same statements whatever their size: the page select with authors,
+ * the liked-by-me lookup for posts and the total count, with no per-row author or like queries.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:post_statements;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class PostServiceStatementCountTest {
+    private static final int POSTS = 60;
+    private static final int OWN_POSTS = 55;
+    private static final int COMMENTS = 55;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User reader;
+    private Post commentedPost;
+
+    @BeforeEach
+    void setUp() {
+        commentRepository.deleteAll();
+        likeRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+
+        reader = userRepository.save(user("reader"));
+        List<User> authors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            authors.add(userRepository.save(user("author" + i)));
+        }
+        for (int i = 0; i < POSTS; i++) {
+            Post post = postRepository.save(Post.builder()
+                    .author(authors.get(i % authors.size()))
+                    .text("Post " + i)
+                    .isPublic(true)
+                    .likeCount(0L)
+                    .commentCount(0L)
+                    .build());
+            if (i % 3 == 0) {
+                likeRepository.save(Like.builder().user(reader).post(post).build());
+            }
+        }
+        // The reader's own posts are private, so they stay off the public timeline
+        for (int i = 0; i < OWN_POSTS; i++) {
+            Post post = postRepository.save(Post.builder()
+                    .author(reader)
+                    .text("Own post " + i)
+                    .isPublic(false)
+                    .likeCount(0L)
+                    .commentCount(0L)
+                    .build());
+            if (i % 3 == 0) {
+                likeRepository.save(Like.builder().user(reader).post(post).build());
+            }
+            commentedPost = post;
+        }
+        for (int i = 0; i < COMMENTS; i++) {
+            commentRepository.save(Comment.builder()
+                    .post(commentedPost)
+                    .author(authors.get(i % authors.size()))
+                    .text("Comment " + i)
+                    .build());
+        }
+    }
+
+    @Test
+    void timelinePageStatementCountDoesNotGrowWithPageSize() {
+        IntFunction<SliceResponse<PostDto>> timeline = size -> postService.getPublicTimeline(null, size, true, reader.getId());
+
+        assertThat(statementsFor(timeline, 5)).isEqualTo(3);
+        assertThat(statementsFor(timeline, 50)).isEqualTo(3);
+    }
+
+    @Test
+    void userPostsPageStatementCountDoesNotGrowWithPageSize() {
+        // The author lookup comes first, then the same three statements as the timeline
+        IntFunction<SliceResponse<PostDto>> userPosts =
+                size -> postService.getUserPosts(reader.getId(), null, size, true, reader.getId());
+
+        assertThat(statementsFor(userPosts, 5)).isEqualTo(4);
+        assertThat(statementsFor(userPosts, 50)).isEqualTo(4);
+    }
+
+    @Test
+    void commentsPageStatementCountDoesNotGrowWithPageSize() {
+        // Post existence check, the page select with authors and the total count
+        IntFunction<SliceResponse<CommentDto>> comments =
+                size -> postService.getPostComments(commentedPost.getId(), null, size, true);
+
+        assertThat(statementsFor(comments, 5)).isEqualTo(3);
+        assertThat(statementsFor(comments, 50)).isEqualTo(3);
+    }
+
+    private long statementsFor(IntFunction<? extends SliceResponse<?>> query, int size) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        SliceResponse<?> page = query.apply(size);
+
+        assertThat(page.getContent()).hasSize(size);
+        if (page.getContent().get(0) instanceof PostDto) {
+            assertThat(page.getContent()).anyMatch(row -> ((PostDto) row).getIsLikedByCurrentUser());
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static User user(String username) {
+        return User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("not-used")
+                .displayName(username)
+                .isDeleted(false)
+                .build();
+    }
+}
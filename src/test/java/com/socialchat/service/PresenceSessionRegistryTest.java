@@ -0,0 +1,49 @@
+package com.socialchat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PresenceSessionRegistryTest {
+    private PresenceSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PresenceSessionRegistry();
+        ReflectionTestUtils.setField(registry, "sessionTimeoutMs", 50L);
+        ReflectionTestUtils.setField(registry, "tickMs", 10L);
+        registry.init();
+    }
+
+    @Test
+    void expiryReportsSessionsToCloseAndUsersThatWentOffline() throws Exception {
+        assertThat(registry.register("a", 1L)).isTrue();
+        assertThat(registry.register("b", 1L)).isFalse();
+        assertThat(registry.register("c", 2L)).isTrue();
+
+        Thread.sleep(100);
+        PresenceSessionRegistry.Expired expired = registry.expireStale();
+
+        assertThat(expired.sessionIds()).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(expired.offlineUserIds()).containsExactlyInAnyOrder(1L, 2L);
+        // The disconnect that follows closing the session does not report the user a second time
+        assertThat(registry.unregister("a")).isNull();
+    }
+
+    @Test
+    void activeSessionIsNotExpired() throws Exception {
+        registry.register("a", 1L);
+        registry.register("b", 1L);
+
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(10);
+            registry.touch("a");
+        }
+        PresenceSessionRegistry.Expired expired = registry.expireStale();
+
+        assertThat(expired.sessionIds()).containsExactly("b");
+        assertThat(expired.offlineUserIds()).isEmpty();
+    }
+}
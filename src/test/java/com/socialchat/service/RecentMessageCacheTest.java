@@ -0,0 +1,123 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.MessageDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentMessageCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void longerFillReplacesAShorterRingEndingAtTheSameSeq() {
+        RecentMessageCache cache = new RecentMessageCache(50, Long.MAX_VALUE, meterRegistry);
+
+        cache.fill(1L, messages(8, 10), 10, false);
+        assertThat(cache.newest(1L, 10, 5)).isNull();
+
+        cache.fill(1L, messages(1, 10), 10, true);
+
+        assertThat(cache.newest(1L, 10, 5)).extracting(MessageDto::getSeq).containsExactly(10L, 9L, 8L, 7L, 6L, 5L);
+    }
+
+    @Test
+    void staleFillDoesNotReplaceARingThatIsAhead() {
+        RecentMessageCache cache = new RecentMessageCache(50, Long.MAX_VALUE, meterRegistry);
+        cache.fill(1L, messages(1, 10), 10, true);
+        cache.append(1L, message(11));
+
+        cache.fill(1L, messages(1, 10), 10, true);
+
+        assertThat(cache.newest(1L, 11, 5)).isNotNull();
+    }
+
+    @Test
+    void appendWithAGapDropsTheRing() {
+        RecentMessageCache cache = new RecentMessageCache(50, Long.MAX_VALUE, meterRegistry);
+        cache.fill(1L, messages(1, 10), 10, true);
+
+        cache.append(1L, message(12));
+
+        assertThat(cache.newest(1L, 10, 5)).isNull();
+        assertThat(meterRegistry.get("chat.recent.cache.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedRingsPastTheByteLimit() {
+        RecentMessageCache cache = new RecentMessageCache(50, 3 * bytesOf(messages(1, 10)), meterRegistry);
+        cache.fill(1L, messages(1, 10), 10, true);
+        cache.fill(2L, messages(1, 10), 10, true);
+        cache.fill(3L, messages(1, 10), 10, true);
+        cache.newest(1L, 10, 5);
+
+        // Over the limit: trims below 90% of it, dropping the two least recently used rings
+        cache.fill(4L, messages(1, 10), 10, true);
+
+        assertThat(cache.newest(1L, 10, 5)).isNotNull();
+        assertThat(cache.newest(2L, 10, 5)).isNull();
+        assertThat(cache.newest(3L, 10, 5)).isNull();
+        assertThat(cache.newest(4L, 10, 5)).isNotNull();
+    }
+
+    @Test
+    void concurrentAppendsKeepTheByteCountInStep() throws Exception {
+        RecentMessageCache cache = new RecentMessageCache(50, Long.MAX_VALUE, meterRegistry);
+        int conversations = 8;
+        for (long id = 1; id <= conversations; id++) {
+            cache.fill(id, messages(1, 1), 1, true);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(conversations);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (long id = 1; id <= conversations; id++) {
+                long conversationId = id;
+                writers.add(pool.submit(() -> LongStream.rangeClosed(2, 500)
+                        .forEach(seq -> cache.append(conversationId, message(seq)))));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (long id = 1; id <= conversations; id++) {
+            assertThat(cache.newest(id, 500, 49)).hasSize(50);
+        }
+        assertThat(meterRegistry.get("chat.recent.cache.bytes").gauge().value())
+                .isEqualTo((double) conversations * bytesOf(messages(451, 500)));
+    }
+
+    private long bytesOf(List<MessageDto> messages) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecentMessageCache cache = new RecentMessageCache(messages.size(), Long.MAX_VALUE, registry);
+        long newest = messages.get(messages.size() - 1).getSeq();
+        cache.fill(0L, messages, newest, true);
+        return (long) registry.get("chat.recent.cache.bytes").gauge().value();
+    }
+
+    private static List<MessageDto> messages(long fromSeq, long toSeq) {
+        return LongStream.rangeClosed(fromSeq, toSeq).mapToObj(RecentMessageCacheTest::message).toList();
+    }
+
+    private static MessageDto message(long seq) {
+        return MessageDto.builder()
+                .id(seq)
+                .seq(seq)
+                .senderId(10L)
+                .senderUsername("alice")
+                .content("Message " + seq)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 12, 0).plusSeconds(seq))
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.User;
+import com.socialchat.entity.UserPresence;
+import com.socialchat.repository.UserPresenceRepository;
+import com.socialchat.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The presence flush against a real datasource: the batched upsert must insert new rows and update
+ * existing ones, leaving nothing dirty behind.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:presence_flush;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class UserPresenceFlushTest {
+    @Autowired
+    private UserPresenceService userPresenceService;
+
+    @Autowired
+    private UserPresenceRepository userPresenceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        userPresenceRepository.deleteAll();
+        userRepository.deleteAll();
+        alice = userRepository.save(user("alice"));
+        bob = userRepository.save(user("bob"));
+    }
+
+    @Test
+    void flushInsertsThenUpdatesPresenceRows() {
+        userPresenceService.setUserOnline(alice.getId(), true);
+        userPresenceService.setUserOnline(bob.getId(), true);
+        userPresenceService.flushDirty();
+
+        assertThat(dirtyUserIds()).isEmpty();
+        assertThat(storedOnline(alice)).isTrue();
+        assertThat(storedOnline(bob)).isTrue();
+
+        userPresenceService.setUserOnline(bob.getId(), false);
+        userPresenceService.flushDirty();
+
+        assertThat(dirtyUserIds()).isEmpty();
+        assertThat(storedOnline(alice)).isTrue();
+        assertThat(storedOnline(bob)).isFalse();
+        assertThat(userPresenceRepository.findByUserId(bob.getId()))
+                .get().extracting(UserPresence::getUpdatedAt).isNotNull();
+    }
+
+    private boolean storedOnline(User user) {
+        return userPresenceRepository.findByUserId(user.getId()).orElseThrow().getIsOnline();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> dirtyUserIds() {
+        return (Set<Long>) ReflectionTestUtils.getField(userPresenceService, "dirtyUserIds");
+    }
+
+    private static User user(String username) {
+        return User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("not-used")
+                .displayName(username)
+                .isDeleted(false)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.UserPresenceDto;
+import com.socialchat.repository.UserPresenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPresenceServiceTest {
+    private final UserPresenceRepository userPresenceRepository = mock(UserPresenceRepository.class);
+    private final UserProfileCache userProfileCache = mock(UserProfileCache.class);
+    private final PresenceFanoutService presenceFanoutService = mock(PresenceFanoutService.class);
+    private final UserPresenceService service = new UserPresenceService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "userPresenceRepository", userPresenceRepository);
+        ReflectionTestUtils.setField(service, "userProfileCache", userProfileCache);
+        ReflectionTestUtils.setField(service, "presenceFanoutService", presenceFanoutService);
+        ReflectionTestUtils.setField(service, "friendAdjacencyIndex", mock(FriendAdjacencyIndex.class));
+        ReflectionTestUtils.setField(service, "presenceDirectory", new InProcessPresenceDirectory());
+        when(userProfileCache.get(anyLong())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            return new UserSnapshot(userId, "user" + userId, "User " + userId, null);
+        });
+        when(userPresenceRepository.findByUserId(anyLong())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void flushDropsOfflineEntriesAndKeepsOnlineOnes() {
+        service.setUserOnline(1L, true);
+        service.setUserOnline(2L, true);
+        service.setUserOnline(2L, false);
+        service.getUserPresence(3L);
+
+        service.flushDirty();
+
+        assertThat(registry().keySet()).containsExactly(1L);
+        assertThat(service.isUserOnline(1L)).isTrue();
+        assertThat(service.isUserOnline(2L)).isFalse();
+    }
+
+    @Test
+    void keepsOfflineEntriesWhoseWriteFailed() {
+        when(userPresenceRepository.upsertAll(anyCollection())).thenThrow(new RuntimeException("database down"));
+        service.setUserOnline(2L, true);
+        service.setUserOnline(2L, false);
+
+        service.flushDirty();
+
+        assertThat(registry().keySet()).containsExactly(2L);
+    }
+
+    @Test
+    void staysOnlineWhileAnotherNodeHasASessionAndAnnouncesOnlyTransitions() {
+        PresenceDirectory directory = mock(PresenceDirectory.class);
+        ReflectionTestUtils.setField(service, "presenceDirectory", directory);
+        when(directory.isOnline(1L)).thenReturn(true);
+        when(directory.update(1L, true)).thenReturn(true);
+        when(directory.update(1L, false)).thenReturn(null);
+
+        // The directory already counts this node's session when the entry is loaded
+        service.onLocalSessions(1L, true);
+        service.onLocalSessions(1L, false);
+
+        assertThat(service.isUserOnline(1L)).isTrue();
+        verify(presenceFanoutService, times(1)).onPresenceChanged(any(UserPresenceDto.class));
+        verify(directory, never()).publish(any(PresenceEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> registry() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(service, "registry");
+    }
+}
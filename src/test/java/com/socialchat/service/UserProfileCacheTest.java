@@ -0,0 +1,80 @@
+package com.socialchat.service;
+
+import com.socialchat.entity.User;
+import com.socialchat.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserProfileCacheTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final InProcessProfileEventBus bus = new InProcessProfileEventBus();
+    private final UserProfileCache cache = new UserProfileCache(userRepository, bus);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void committedProfileEventReloadsSnapshotAndLiveSessions() {
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenReturn(Optional.of(user("Alice")));
+        UserSnapshot before = cache.get(1L);
+        Map<String, Object> attributes = new HashMap<>();
+        cache.attachSession("s1", before, attributes);
+
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenReturn(Optional.of(user("Alice B.")));
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(new ProfileEvent(1L));
+        assertThat(cache.get(1L).displayName()).isEqualTo("Alice");
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(cache.get(1L).displayName()).isEqualTo("Alice B.");
+        assertThat(((UserSnapshot) attributes.get(UserProfileCache.SESSION_ATTRIBUTE)).displayName()).isEqualTo("Alice B.");
+    }
+
+    @Test
+    void deletedUserIsDroppedOnEvent() {
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenReturn(Optional.of(user("Alice")));
+        cache.get(1L);
+
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenReturn(Optional.empty());
+        bus.publish(new ProfileEvent(1L));
+
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void missLoadingTheOldRowDoesNotOverwriteARefresh() {
+        // The miss reads the row, then an edit commits and refreshes the cache before the miss stores it
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenAnswer(invocation -> {
+            cache.refresh(user("Alice B."));
+            return Optional.of(user("Alice"));
+        });
+
+        assertThat(cache.get(1L).displayName()).isEqualTo("Alice B.");
+    }
+
+    private static User user(String displayName) {
+        return User.builder().id(1L).username("alice").displayName(displayName).isDeleted(false).build();
+    }
+}
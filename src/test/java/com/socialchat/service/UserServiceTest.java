@@ -0,0 +1,49 @@
+package com.socialchat.service;
+
+import com.socialchat.dto.UpdateProfileRequest;
+import com.socialchat.entity.User;
+import com.socialchat.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProfileEventBus profileEventBus = mock(ProfileEventBus.class);
+    private final UserService service = new UserService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "profileEventBus", profileEventBus);
+        User user = User.builder().id(1L).username("alice").displayName("Alice").isDeleted(false).build();
+        when(userRepository.findByIdAndIsDeletedFalse(1L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void profileUpdatesArePublishedToEveryNode() {
+        UpdateProfileRequest request = new UpdateProfileRequest();
+        request.setDisplayName("Alice B.");
+
+        service.updateProfile(1L, request);
+        service.updateProfilePhoto(1L, "https://cdn.example.com/alice.jpg");
+
+        verify(profileEventBus, times(2)).publish(new ProfileEvent(1L));
+    }
+
+    @Test
+    void deletionIsPublishedToEveryNode() {
+        service.deleteAccount(1L);
+
+        verify(profileEventBus).publish(new ProfileEvent(1L));
+    }
+}
@@ -0,0 +1,72 @@
+package com.socialchat.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketEventServiceTest {
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+    private final InProcessMembershipEventBus membershipEventBus = new InProcessMembershipEventBus();
+    private final WebSocketEventService eventService = new WebSocketEventService(
+            new SimpMessagingTemplate((message, timeout) -> sent.add(message)), userRegistry, membershipEventBus);
+
+    @Test
+    void memberWhoLeftIsUnsubscribedFromTheConversationTopics() {
+        SimpSession phone = session("phone",
+                subscription("sub-1", "/topic/conversation/5"),
+                subscription("sub-2", "/topic/conversation/5/typing"),
+                subscription("sub-3", "/topic/conversation/50"),
+                subscription("sub-4", "/user/queue/conversations"));
+        SimpSession laptop = session("laptop", subscription("sub-1", "/topic/conversation/5"));
+        SimpUser user = mock(SimpUser.class);
+        when(user.getSessions()).thenReturn(Set.of(phone, laptop));
+        when(userRegistry.getUser("7")).thenReturn(user);
+        eventService.subscribeToMembershipChanges();
+
+        membershipEventBus.publish(new MembershipEvent(5L, 7L));
+
+        assertThat(sent).allSatisfy(message ->
+                assertThat(SimpMessageHeaderAccessor.getMessageType(message.getHeaders())).isEqualTo(SimpMessageType.UNSUBSCRIBE));
+        assertThat(sent).extracting(message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders())
+                        + ":" + SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()))
+                .containsExactlyInAnyOrder("phone:sub-1", "phone:sub-2", "laptop:sub-1");
+    }
+
+    @Test
+    void membershipChangeWithoutLeaverKeepsSubscriptions() {
+        eventService.subscribeToMembershipChanges();
+
+        membershipEventBus.publish(new MembershipEvent(5L, null));
+
+        assertThat(sent).isEmpty();
+    }
+
+    private static SimpSession session(String id, SimpSubscription... subscriptions) {
+        SimpSession session = mock(SimpSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getSubscriptions()).thenReturn(Set.of(subscriptions));
+        return session;
+    }
+
+    private static SimpSubscription subscription(String id, String destination) {
+        SimpSubscription subscription = mock(SimpSubscription.class);
+        when(subscription.getId()).thenReturn(id);
+        when(subscription.getDestination()).thenReturn(destination);
+        return subscription;
+    }
+}
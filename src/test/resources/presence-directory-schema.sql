@@ -0,0 +1,20 @@
+-- H2 version of V16__Add_Presence_Node_Sessions.sql, for tests that run presence.directory=db-polling
+CREATE TABLE presence_nodes (
+    node_id VARCHAR(64) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE presence_node_sessions (
+    node_id VARCHAR(64) NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (node_id, user_id)
+);
+
+CREATE INDEX idx_presence_node_sessions_user_id ON presence_node_sessions (user_id);
+
+CREATE TABLE presence_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    online BOOLEAN NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);